@@ -0,0 +1,80 @@
+package com.googlecode.jslint4java.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of JavaScript sources to lint, held in memory so that benchmarks don't measure I/O.
+ */
+final class Corpus {
+
+    /** The default corpus: large libraries bundled with the PhoneGap wizard. */
+    private static final String[] DEFAULT_FILES = {
+            "../com.mds.apg/resources/jqm/jquery.mobile/jquery.mobile-1.1.0.js",
+            "../com.mds.apg/resources/phonegap/1.9.0/cordova-1.9.0.js",
+            "../com.mds.apg/resources/phonegap/1.4.1/phonegap-1.4.1.js" };
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Load the named files, or the default corpus if there are none.
+     */
+    static Corpus load(List<String> files) throws IOException {
+        List<String> names = files.isEmpty() ? Arrays.asList(DEFAULT_FILES) : files;
+        Map<String, String> sources = new LinkedHashMap<String, String>();
+        for (String name : names) {
+            sources.put(name, read(new File(name)));
+        }
+        return new Corpus(sources);
+    }
+
+    private static String read(File f) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(f), UTF8);
+        try {
+            StringBuilder sb = new StringBuilder((int) f.length());
+            char[] buf = new char[8192];
+            int n;
+            while ((n = reader.read(buf)) != -1) {
+                sb.append(buf, 0, n);
+            }
+            return sb.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private final Map<String, String> sources;
+
+    private Corpus(Map<String, String> sources) {
+        this.sources = Collections.unmodifiableMap(sources);
+    }
+
+    /** The file names, in the order they were given. */
+    List<String> names() {
+        return new ArrayList<String>(sources.keySet());
+    }
+
+    /** The source of a single file. */
+    String source(String name) {
+        return sources.get(name);
+    }
+
+    /** Total size of all sources, in characters. */
+    long size() {
+        long total = 0;
+        for (String src : sources.values()) {
+            total += src.length();
+        }
+        return total;
+    }
+}
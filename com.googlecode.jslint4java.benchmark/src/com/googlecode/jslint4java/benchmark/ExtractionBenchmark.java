@@ -0,0 +1,85 @@
+package com.googlecode.jslint4java.benchmark;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import com.googlecode.jslint4java.JSFunction;
+import com.googlecode.jslint4java.JSLint;
+import com.googlecode.jslint4java.JSLintBuilder;
+import com.googlecode.jslint4java.JSLintResult;
+import com.googlecode.jslint4java.Option;
+
+/**
+ * Compare reading issues and functions back from JSLINT one property at a time against the bulk
+ * extraction path (see {@link JSLint#setBulkExtraction(boolean)}).
+ *
+ * <pre>
+ * java com.googlecode.jslint4java.benchmark.ExtractionBenchmark [file.js ...]
+ * </pre>
+ *
+ * Several strict options are enabled and maxerr is raised, so that large files produce a large
+ * number of issues. Both paths are checked to produce the same results before timing.
+ */
+public class ExtractionBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        Corpus corpus = Corpus.load(Arrays.asList(args));
+        JSLint lint = new JSLintBuilder().fromDefault();
+        // Options which produce many issues without stopping the scan early.
+        for (Option o : EnumSet.of(Option.WHITE, Option.ONEVAR, Option.PLUSPLUS, Option.NOMEN,
+                Option.BITWISE, Option.EQEQEQ, Option.UNDEF)) {
+            lint.addOption(o);
+        }
+        lint.addOption(Option.MAXERR, "100000");
+
+        for (String name : corpus.names()) {
+            check(lint, name, corpus.source(name));
+        }
+        // Alternate so that neither path benefits from running second.
+        for (int i = 0; i < 2; i++) {
+            time(lint, corpus, false);
+            time(lint, corpus, true);
+        }
+    }
+
+    /** Ensure that both paths agree. */
+    private static void check(JSLint lint, String name, String source) {
+        lint.setBulkExtraction(false);
+        JSLintResult slow = lint.lint(name, source);
+        lint.setBulkExtraction(true);
+        JSLintResult fast = lint.lint(name, source);
+        if (!slow.getIssues().toString().equals(fast.getIssues().toString())
+                || !describe(slow).equals(describe(fast))) {
+            throw new AssertionError("extraction paths disagree for " + name);
+        }
+        System.out.println(String.format("%s: %d issues, %d functions", name, fast.getIssues()
+                .size(), fast.getFunctions().size()));
+    }
+
+    private static String describe(JSLintResult result) {
+        StringBuilder sb = new StringBuilder();
+        for (JSFunction f : result.getFunctions()) {
+            sb.append(f.getName()).append(f.getLine()).append(f.getLast()).append(f.getParams())
+                    .append(f.getClosure()).append(f.getVars()).append(f.getException())
+                    .append(f.getOuter()).append(f.getUnused()).append(f.getGlobal())
+                    .append(f.getLabel()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void time(JSLint lint, Corpus corpus, boolean bulk) {
+        lint.setBulkExtraction(bulk);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            for (String name : corpus.names()) {
+                lint.lint(name, corpus.source(name));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%s: %d ms per corpus", bulk ? "bulk" : "per-property",
+                TimeUnit.NANOSECONDS.toMillis(elapsed / ROUNDS)));
+    }
+}
@@ -0,0 +1,124 @@
+package com.googlecode.jslint4java.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * A minimal benchmark runner, in the style of JMH: each benchmark is run repeatedly for a number
+ * of fixed-length warmup iterations, then for a number of measured iterations. The mean time per
+ * operation and its standard deviation across iterations are reported.
+ */
+final class Harness {
+
+    /** A single operation to be measured. */
+    interface Benchmark {
+        /**
+         * Perform one operation. Return something derived from the work done, so that it can't
+         * be optimized away.
+         */
+        Object run() throws Exception;
+    }
+
+    private static final class Entry {
+        final String name;
+        final Benchmark benchmark;
+
+        Entry(String name, Benchmark benchmark) {
+            this.name = name;
+            this.benchmark = benchmark;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    private int warmupIterations = 3;
+
+    private int iterations = 5;
+
+    private long iterationNanos = TimeUnit.SECONDS.toNanos(1);
+
+    /** Accumulates results so that the JIT can't discard the work being measured. */
+    private int sink;
+
+    void add(String name, Benchmark benchmark) {
+        entries.add(new Entry(name, benchmark));
+    }
+
+    Harness iterations(int warmup, int measured) {
+        warmupIterations = warmup;
+        iterations = measured;
+        return this;
+    }
+
+    Harness iterationTime(long millis) {
+        iterationNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        return this;
+    }
+
+    /**
+     * Run every benchmark whose name matches <i>include</i>, printing a line for each.
+     */
+    void run(Pattern include) throws Exception {
+        System.out.println(String.format("%-40s %12s %12s %8s", "Benchmark", "ms/op", "error", "ops"));
+        for (Entry entry : entries) {
+            if (!include.matcher(entry.name).find()) {
+                continue;
+            }
+            for (int i = 0; i < warmupIterations; i++) {
+                iterate(entry.benchmark);
+            }
+            double[] samples = new double[iterations];
+            long ops = 0;
+            for (int i = 0; i < iterations; i++) {
+                long[] result = iterate(entry.benchmark);
+                ops += result[1];
+                samples[i] = result[0] / (double) result[1] / TimeUnit.MILLISECONDS.toNanos(1);
+            }
+            System.out.println(String.format("%-40s %12.3f %12.3f %8d", entry.name, mean(samples),
+                    stddev(samples), ops));
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    /**
+     * Run the benchmark until an iteration's worth of time has passed (but at least once).
+     *
+     * @return the elapsed nanoseconds and the number of operations.
+     */
+    private long[] iterate(Benchmark benchmark) throws Exception {
+        long start = System.nanoTime();
+        long elapsed;
+        long ops = 0;
+        do {
+            Object o = benchmark.run();
+            sink += o == null ? 0 : o.hashCode();
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        return new long[] { elapsed, ops };
+    }
+
+    private static double mean(double[] samples) {
+        double total = 0;
+        for (double s : samples) {
+            total += s;
+        }
+        return total / samples.length;
+    }
+
+    private static double stddev(double[] samples) {
+        if (samples.length < 2) {
+            return 0;
+        }
+        double mean = mean(samples);
+        double total = 0;
+        for (double s : samples) {
+            total += (s - mean) * (s - mean);
+        }
+        return Math.sqrt(total / (samples.length - 1));
+    }
+}
@@ -0,0 +1,197 @@
+package com.googlecode.jslint4java.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.googlecode.jslint4java.JSLint;
+import com.googlecode.jslint4java.JSLintBuilder;
+import com.googlecode.jslint4java.JSLintResult;
+import com.googlecode.jslint4java.Option;
+import com.googlecode.jslint4java.formatter.JSLintResultFormatter;
+import com.googlecode.jslint4java.formatter.JSLintResultStreamFormatter;
+import com.googlecode.jslint4java.formatter.JSLintXmlFormatter;
+import com.googlecode.jslint4java.formatter.JSLintXmlStreamFormatter;
+import com.googlecode.jslint4java.formatter.JUnitXmlFormatter;
+import com.googlecode.jslint4java.formatter.JUnitXmlStreamFormatter;
+import com.googlecode.jslint4java.formatter.PlainFormatter;
+import com.googlecode.jslint4java.formatter.ReportFormatter;
+
+/**
+ * The main jslint4java benchmark suite. Covers startup, linting the corpus, option marshaling
+ * and every formatter.
+ *
+ * <pre>
+ * java com.googlecode.jslint4java.benchmark.JSLintBenchmarks [-i regex] [-wi n] [-mi n] [-t ms] [file.js ...]
+ * </pre>
+ *
+ * <dl>
+ * <dt>-i</dt>
+ * <dd>only run benchmarks whose name matches the regex</dd>
+ * <dt>-wi / -mi</dt>
+ * <dd>number of warmup / measured iterations (default 3 / 5)</dd>
+ * <dt>-t</dt>
+ * <dd>length of each iteration in milliseconds (default 1000)</dd>
+ * </dl>
+ */
+public class JSLintBenchmarks {
+
+    /** Discards everything, so formatters are measured without I/O. */
+    private static final class NullWriter extends Writer {
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+        }
+    }
+
+    /** Options which produce plenty of issues without stopping the scan early. */
+    private static final EnumSet<Option> NOISY_OPTIONS = EnumSet.of(Option.WHITE, Option.ONEVAR,
+            Option.PLUSPLUS, Option.NOMEN, Option.BITWISE, Option.EQEQEQ, Option.UNDEF);
+
+    public static void main(String[] args) throws Exception {
+        Harness harness = new Harness();
+        Pattern include = Pattern.compile("");
+        int warmup = 3;
+        int measured = 5;
+        List<String> files = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-i")) {
+                include = Pattern.compile(args[++i]);
+            } else if (args[i].equals("-wi")) {
+                warmup = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-mi")) {
+                measured = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-t")) {
+                harness.iterationTime(Long.parseLong(args[++i]));
+            } else {
+                files.add(args[i]);
+            }
+        }
+        harness.iterations(warmup, measured);
+        Corpus corpus = Corpus.load(files);
+
+        addStartup(harness);
+        addLint(harness, corpus);
+        addOptions(harness);
+        addFormatters(harness, corpus);
+        harness.run(include);
+    }
+
+    private static void addStartup(Harness harness) {
+        harness.add("startup.fromDefault", new Harness.Benchmark() {
+            public Object run() {
+                return new JSLintBuilder().fromDefault();
+            }
+        });
+        harness.add("startup.poolFromDefault", new Harness.Benchmark() {
+            public Object run() throws InterruptedException {
+                return new JSLintBuilder().poolFromDefault(1).borrow();
+            }
+        });
+    }
+
+    private static void addLint(Harness harness, final Corpus corpus) {
+        final JSLint full = new JSLintBuilder().fromDefault();
+        final JSLint issuesOnly = new JSLintBuilder().fromDefault();
+        issuesOnly.setCollectReports(false);
+        for (final String name : corpus.names()) {
+            String shortName = new File(name).getName();
+            harness.add("lint.full." + shortName, new Harness.Benchmark() {
+                public Object run() {
+                    return full.lint(name, corpus.source(name));
+                }
+            });
+            harness.add("lint.issues." + shortName, new Harness.Benchmark() {
+                public Object run() {
+                    return issuesOnly.lint(name, corpus.source(name));
+                }
+            });
+        }
+    }
+
+    /**
+     * Lint an empty source, so that the time is dominated by turning the options into a
+     * JavaScript object and JSLint's processing of them.
+     */
+    private static void addOptions(Harness harness) {
+        final JSLint none = new JSLintBuilder().fromDefault();
+        none.setCollectReports(false);
+        harness.add("options.none", new Harness.Benchmark() {
+            public Object run() {
+                return none.lint("empty.js", "");
+            }
+        });
+        final JSLint all = new JSLintBuilder().fromDefault();
+        all.setCollectReports(false);
+        for (Option o : Option.values()) {
+            if (o.getType() == Boolean.class) {
+                all.addOption(o);
+            }
+        }
+        all.addOption(Option.INDENT, "4");
+        all.addOption(Option.MAXERR, "50");
+        all.addOption(Option.MAXLEN, "120");
+        all.addOption(Option.PREDEF, "jQuery, $, cordova, PhoneGap, device, navigator");
+        harness.add("options.all", new Harness.Benchmark() {
+            public Object run() {
+                return all.lint("empty.js", "");
+            }
+        });
+    }
+
+    private static void addFormatters(Harness harness, Corpus corpus) {
+        JSLint lint = new JSLintBuilder().fromDefault();
+        for (Option o : NOISY_OPTIONS) {
+            lint.addOption(o);
+        }
+        lint.addOption(Option.MAXERR, "100000");
+        final List<JSLintResult> results = new ArrayList<JSLintResult>();
+        for (String name : corpus.names()) {
+            results.add(lint.lint(name, corpus.source(name)));
+        }
+        addFormatter(harness, "format.plain", new PlainFormatter(), results);
+        addFormatter(harness, "format.xml", new JSLintXmlFormatter(), results);
+        addFormatter(harness, "format.junit", new JUnitXmlFormatter(), results);
+        addFormatter(harness, "format.report", new ReportFormatter(), results);
+        addStreamFormatter(harness, "format.xml.stream", new JSLintXmlStreamFormatter(), results);
+        addStreamFormatter(harness, "format.junit.stream", new JUnitXmlStreamFormatter(), results);
+    }
+
+    private static void addFormatter(Harness harness, String name,
+            final JSLintResultFormatter formatter, final List<JSLintResult> results) {
+        harness.add(name, new Harness.Benchmark() {
+            public Object run() {
+                int length = 0;
+                for (JSLintResult result : results) {
+                    length += formatter.format(result).length();
+                }
+                return length;
+            }
+        });
+    }
+
+    private static void addStreamFormatter(Harness harness, String name,
+            final JSLintResultStreamFormatter formatter, final List<JSLintResult> results) {
+        harness.add(name, new Harness.Benchmark() {
+            public Object run() throws IOException {
+                formatter.open(new NullWriter());
+                for (JSLintResult result : results) {
+                    formatter.format(result);
+                }
+                formatter.close();
+                return formatter;
+            }
+        });
+    }
+}
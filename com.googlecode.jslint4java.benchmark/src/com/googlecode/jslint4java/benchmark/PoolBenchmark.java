@@ -0,0 +1,127 @@
+package com.googlecode.jslint4java.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.googlecode.jslint4java.JSLint;
+import com.googlecode.jslint4java.JSLintBuilder;
+import com.googlecode.jslint4java.JSLintPool;
+import com.googlecode.jslint4java.JSLintResult;
+
+/**
+ * Compare linting the corpus serially with a single {@link JSLint} against linting it from
+ * several threads at once through a {@link JSLintPool}.
+ *
+ * <pre>
+ * java com.googlecode.jslint4java.benchmark.PoolBenchmark [-Dthreads=n] [file.js ...]
+ * </pre>
+ *
+ * Every file is linted several times over by the pool, so that instances are reused and run
+ * side by side. Each result must be identical to the serial one before anything is timed.
+ */
+public class PoolBenchmark {
+
+    private static final int THREADS = Integer.getInteger("threads", 4);
+
+    /** How many times over each file is linted by the pool. */
+    private static final int COPIES = 4;
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        Corpus corpus = Corpus.load(Arrays.asList(args));
+        JSLint lint = new JSLintBuilder().fromDefault();
+        Map<String, String> expected = new LinkedHashMap<String, String>();
+        for (String name : corpus.names()) {
+            expected.put(name, describe(lint.lint(name, corpus.source(name))));
+        }
+
+        JSLintPool pool = new JSLintBuilder().poolFromDefault(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            check(pool, executor, corpus, expected);
+            // Alternate so that neither way benefits from running second.
+            for (int i = 0; i < 2; i++) {
+                timeSerial(lint, corpus);
+                timePool(pool, executor, corpus);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Ensure that every concurrent lint agrees with the serial one. */
+    private static void check(JSLintPool pool, ExecutorService executor, Corpus corpus,
+            Map<String, String> expected) throws Exception {
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < COPIES; i++) {
+            names.addAll(corpus.names());
+        }
+        List<Future<String>> results = submit(pool, executor, corpus, names);
+        for (int i = 0; i < names.size(); i++) {
+            if (!expected.get(names.get(i)).equals(results.get(i).get())) {
+                throw new AssertionError("concurrent lint disagrees with serial for "
+                        + names.get(i));
+            }
+        }
+        System.out.println(String.format("%d concurrent lints agree with serial",
+                names.size()));
+    }
+
+    private static List<Future<String>> submit(final JSLintPool pool, ExecutorService executor,
+            final Corpus corpus, List<String> names) {
+        List<Future<String>> results = new ArrayList<Future<String>>();
+        for (final String name : names) {
+            results.add(executor.submit(new Callable<String>() {
+                public String call() throws Exception {
+                    JSLint lint = pool.borrow();
+                    try {
+                        return describe(lint.lint(name, corpus.source(name)));
+                    } finally {
+                        pool.release(lint);
+                    }
+                }
+            }));
+        }
+        return results;
+    }
+
+    private static String describe(JSLintResult result) {
+        return result.getIssues().toString() + result.getFunctions().size()
+                + result.getGlobals() + result.getUnused();
+    }
+
+    private static void timeSerial(JSLint lint, Corpus corpus) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            for (String name : corpus.names()) {
+                lint.lint(name, corpus.source(name));
+            }
+        }
+        report("serial", System.nanoTime() - start);
+    }
+
+    private static void timePool(JSLintPool pool, ExecutorService executor, Corpus corpus)
+            throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            for (Future<String> result : submit(pool, executor, corpus, corpus.names())) {
+                result.get();
+            }
+        }
+        report(THREADS + " threads", System.nanoTime() - start);
+    }
+
+    private static void report(String what, long elapsed) {
+        System.out.println(String.format("%s: %d ms per corpus", what,
+                TimeUnit.NANOSECONDS.toMillis(elapsed / ROUNDS)));
+    }
+}
@@ -0,0 +1,104 @@
+package com.googlecode.jslint4java.benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.mozilla.javascript.Script;
+
+import com.googlecode.jslint4java.JSLint;
+import com.googlecode.jslint4java.JSLintBuilder;
+
+/**
+ * Compare the startup cost and lint throughput of fulljslint.js when interpreted, compiled at
+ * runtime and precompiled with {@code build-jsc.xml}.
+ *
+ * <pre>
+ * java com.googlecode.jslint4java.benchmark.StartupBenchmark [file.js ...]
+ * </pre>
+ *
+ * The precompiled case is skipped unless {@code compiled/} is on the classpath.
+ */
+public class StartupBenchmark {
+
+    /** Something which can produce a fresh {@link JSLint}. */
+    private interface Factory {
+        JSLint create() throws IOException;
+    }
+
+    private static final String COMPILED_JSLINT = "com.googlecode.jslint4java.FullJSLint";
+
+    private static final String JSLINT_FILE = "com/googlecode/jslint4java/fulljslint.js";
+
+    private static final int STARTUP_ROUNDS = 10;
+
+    private static final int LINT_ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        Corpus corpus = Corpus.load(Arrays.asList(args));
+        StartupBenchmark bench = new StartupBenchmark(corpus);
+        bench.run("interpreted", new Factory() {
+            public JSLint create() throws IOException {
+                return new JSLintBuilder().optimizationLevel(-1).fromClasspathResource(JSLINT_FILE);
+            }
+        });
+        bench.run("compiled at runtime (opt 9)", new Factory() {
+            public JSLint create() throws IOException {
+                return new JSLintBuilder().optimizationLevel(9).fromClasspathResource(JSLINT_FILE);
+            }
+        });
+        final Script precompiled = loadPrecompiled();
+        if (precompiled == null) {
+            System.out.println("precompiled: skipped (" + COMPILED_JSLINT + " not found)");
+        } else {
+            bench.run("precompiled", new Factory() {
+                public JSLint create() {
+                    return new JSLintBuilder().fromScript(precompiled);
+                }
+            });
+        }
+    }
+
+    private static Script loadPrecompiled() throws Exception {
+        try {
+            return (Script) Class.forName(COMPILED_JSLINT).newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private final Corpus corpus;
+
+    private StartupBenchmark(Corpus corpus) {
+        this.corpus = corpus;
+    }
+
+    private void run(String label, Factory factory) throws IOException {
+        // Warm up the JIT on the builder itself.
+        JSLint lint = factory.create();
+        long start = System.nanoTime();
+        for (int i = 0; i < STARTUP_ROUNDS; i++) {
+            lint = factory.create();
+        }
+        long startup = (System.nanoTime() - start) / STARTUP_ROUNDS;
+
+        // One warm-up pass over the corpus, then measure.
+        lintCorpus(lint);
+        start = System.nanoTime();
+        for (int i = 0; i < LINT_ROUNDS; i++) {
+            lintCorpus(lint);
+        }
+        long elapsed = System.nanoTime() - start;
+        double seconds = elapsed / (double) TimeUnit.SECONDS.toNanos(1);
+        double kbPerSecond = corpus.size() * LINT_ROUNDS / 1024.0 / seconds;
+        System.out.println(String.format("%s: startup %d ms, lint %.1f KB/s, %.1f ms/file", label,
+                TimeUnit.NANOSECONDS.toMillis(startup), kbPerSecond,
+                TimeUnit.NANOSECONDS.toMillis(elapsed) / (double) (LINT_ROUNDS * corpus.names().size())));
+    }
+
+    private void lintCorpus(JSLint lint) {
+        for (String name : corpus.names()) {
+            lint.lint(name, corpus.source(name));
+        }
+    }
+}
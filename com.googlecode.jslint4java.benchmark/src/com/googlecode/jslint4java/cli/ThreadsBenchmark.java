@@ -0,0 +1,89 @@
+package com.googlecode.jslint4java.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.googlecode.jslint4java.JSLintBuilder;
+
+/**
+ * Compare the command line linting files one at a time against linting them with
+ * {@code --threads}.
+ *
+ * <pre>
+ * java com.googlecode.jslint4java.cli.ThreadsBenchmark [-Dthreads=n] [file.js ...]
+ * </pre>
+ *
+ * By default the corpus of the benchmark project is linted. Before timing, the output of every
+ * report format must be byte for byte the same either way, apart from the times in junit reports.
+ * This lives in the same package as {@link Main}, so that it can run it without exiting.
+ */
+public class ThreadsBenchmark {
+
+    private static final String THREADS = System.getProperty("threads", "4");
+
+    private static final String[] DEFAULT_FILES = {
+            "../com.mds.apg/resources/jqm/jquery.mobile/jquery.mobile-1.1.0.js",
+            "../com.mds.apg/resources/phonegap/1.9.0/cordova-1.9.0.js",
+            "../com.mds.apg/resources/phonegap/1.4.1/phonegap-1.4.1.js" };
+
+    private static final String[] REPORTS = { "plain", "xml", "junit", "report" };
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    public static void main(String[] args) throws Exception {
+        List<String> files = Arrays.asList(args.length == 0 ? DEFAULT_FILES : args);
+        for (String report : REPORTS) {
+            check(report, files);
+        }
+        // Alternate so that neither way benefits from running second.
+        for (int i = 0; i < 2; i++) {
+            time(files, false);
+            time(files, true);
+        }
+    }
+
+    /** Ensure that both ways write the same report. */
+    private static void check(String report, List<String> files) throws Exception {
+        String serial = run(files, false, "--report", report);
+        String parallel = run(files, true, "--report", report);
+        if (report.equals("junit")) {
+            serial = serial.replaceAll("time='[0-9.]*'", "");
+            parallel = parallel.replaceAll("time='[0-9.]*'", "");
+        }
+        if (!serial.equals(parallel)) {
+            throw new AssertionError("--threads " + THREADS + " changes the " + report
+                    + " report");
+        }
+        System.out.println(String.format("%s: %d chars, same with --threads %s", report,
+                serial.length(), THREADS));
+    }
+
+    private static void time(List<String> files, boolean parallel) throws Exception {
+        long start = System.nanoTime();
+        run(files, parallel);
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%s: %d ms", parallel ? "--threads " + THREADS
+                : "serial", TimeUnit.NANOSECONDS.toMillis(elapsed)));
+    }
+
+    /** Run the command line on <i>files</i>, returning what it wrote to standard output. */
+    private static String run(List<String> files, boolean parallel, String... options)
+            throws Exception {
+        List<String> args = new ArrayList<String>(Arrays.asList(options));
+        if (parallel) {
+            args.add("--threads");
+            args.add(THREADS);
+        }
+        args.addAll(files);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Main main = new Main(new JSLintBuilder().fromDefault(), new PrintStream(out, true, "UTF-8"),
+                System.err, UTF8);
+        main.execute(args.toArray(new String[args.size()]));
+        return out.toString("UTF-8");
+    }
+}
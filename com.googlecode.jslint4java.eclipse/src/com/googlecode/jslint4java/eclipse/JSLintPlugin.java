@@ -3,6 +3,9 @@ package com.googlecode.jslint4java.eclipse;
 import org.eclipse.core.runtime.Plugin;
 import org.osgi.framework.BundleContext;
 
+import com.googlecode.jslint4java.JSLintResultCache;
+import com.googlecode.jslint4java.eclipse.builder.JSLintProvider;
+
 /**
  * The activator class controls the plug-in life cycle
  */
@@ -14,6 +17,12 @@ public class JSLintPlugin extends Plugin {
     // The shared instance
     private static JSLintPlugin plugin;
 
+    private JSLintResultCache resultCache;
+
+    private JSLintProvider lintProvider;
+
+    private LintResults lintResults;
+
     /**
      * The constructor
      */
@@ -29,6 +38,10 @@ public class JSLintPlugin extends Plugin {
     public void start(BundleContext context) throws Exception {
         super.start(context);
         plugin = this;
+        resultCache = new JSLintResultCache(getStateLocation().append("results").toFile());
+        lintResults = new LintResults(resultCache);
+        lintProvider = new JSLintProvider();
+        lintProvider.init();
     }
 
     /*
@@ -38,6 +51,7 @@ public class JSLintPlugin extends Plugin {
      */
     @Override
     public void stop(BundleContext context) throws Exception {
+        lintProvider.dispose();
         plugin = null;
         super.stop(context);
     }
@@ -50,4 +64,25 @@ public class JSLintPlugin extends Plugin {
     public static JSLintPlugin getDefault() {
         return plugin;
     }
+
+    /**
+     * Returns the provider of JSLint instances shared by every project.
+     */
+    public JSLintProvider getLintProvider() {
+        return lintProvider;
+    }
+
+    /**
+     * Returns the results of recent lints, backed by {@link #getResultCache()}.
+     */
+    public LintResults getLintResults() {
+        return lintResults;
+    }
+
+    /**
+     * Returns the cache of lint results, kept in the plugin's state location.
+     */
+    public JSLintResultCache getResultCache() {
+        return resultCache;
+    }
 }
@@ -0,0 +1,93 @@
+package com.googlecode.jslint4java.eclipse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.googlecode.jslint4java.JSLint;
+import com.googlecode.jslint4java.JSLintResult;
+import com.googlecode.jslint4java.JSLintResultCache;
+
+/**
+ * Where the builder and the editor get lint results from. A result is looked up by its
+ * {@link JSLintResultCache#key(JSLint, String, String) key} among the most recent results first,
+ * then in the persistent cache. Only then is the source actually linted. So when a file which has
+ * just been linted in the editor is saved, the builder doesn't lint it again.
+ *
+ * <p>
+ * This class is thread safe.
+ */
+public class LintResults {
+
+    /**
+     * A result held in memory.
+     */
+    private static final class Recent {
+        final JSLintResult result;
+        /** Has this been written to the persistent cache? Guarded by {@link #recent}. */
+        boolean persisted;
+
+        Recent(JSLintResult result, boolean persisted) {
+            this.result = result;
+            this.persisted = persisted;
+        }
+    }
+
+    /** How many recent results to keep in memory. */
+    private static final int RECENT_SIZE = 64;
+
+    private final JSLintResultCache cache;
+
+    /** Guarded by itself. */
+    @SuppressWarnings("serial")
+    private final Map<String, Recent> recent = new LinkedHashMap<String, Recent>(RECENT_SIZE,
+            0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Recent> eldest) {
+            return size() > RECENT_SIZE;
+        }
+    };
+
+    public LintResults(JSLintResultCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Return the result of linting <i>source</i> with <i>lint</i>, linting it only if it hasn't
+     * been already.
+     *
+     * @param persist
+     *            whether the result should be kept in the persistent cache as well as in memory.
+     *            Contents of an editor mostly won't ever be saved, so aren't worth writing out.
+     */
+    public JSLintResult lint(JSLint lint, String systemId, String source, boolean persist) {
+        String key = cache.key(lint, systemId, source);
+        Recent r;
+        boolean write;
+        synchronized (recent) {
+            r = recent.get(key);
+            write = r != null && persist && !r.persisted;
+            if (write) {
+                r.persisted = true;
+            }
+        }
+        if (r != null) {
+            if (write) {
+                cache.put(key, r.result);
+            }
+            return r.result;
+        }
+        JSLintResult result = cache.get(key);
+        boolean persisted = result != null;
+        if (result == null) {
+            result = lint.lint(systemId, source);
+            if (persist) {
+                cache.put(key, result);
+                persisted = true;
+            }
+        }
+        synchronized (recent) {
+            recent.put(key, new Recent(result, persisted));
+        }
+        return result;
+    }
+}
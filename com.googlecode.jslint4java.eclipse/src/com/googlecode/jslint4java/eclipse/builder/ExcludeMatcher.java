@@ -0,0 +1,130 @@
+package com.googlecode.jslint4java.eclipse.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.resources.IResource;
+
+/**
+ * A compiled form of the "Exclude" preference: a list of patterns separated by spaces or commas.
+ * A resource is excluded if its full path (such as "/project/www/jquery.mobile/jquery.js")
+ * contains any of the patterns. Patterns may also use globs: "*" and "?" match within a single
+ * path segment, and "**" matches across segments.
+ *
+ * <p>
+ * Folders are matched by their path with a trailing "/". Because patterns are only ever searched
+ * for, never anchored at the end, everything within an excluded folder is excluded too. So the
+ * visitors can skip the whole folder.
+ */
+final class ExcludeMatcher {
+
+    /** Matches nothing. */
+    static final ExcludeMatcher NONE = new ExcludeMatcher("", new String[0], new Pattern[0]);
+
+    /**
+     * Compile a value of the "Exclude" preference. A null value excludes nothing.
+     */
+    static ExcludeMatcher compile(String excludes) {
+        if (excludes == null || excludes.trim().length() == 0) {
+            return NONE;
+        }
+        List<String> literals = new ArrayList<String>();
+        List<Pattern> globs = new ArrayList<Pattern>();
+        for (String s : excludes.split("[ ,]+")) {
+            s = s.trim();
+            if (s.equals("")) {
+                continue;
+            }
+            if (s.indexOf('*') == -1 && s.indexOf('?') == -1) {
+                literals.add(s);
+            } else {
+                globs.add(globToPattern(s));
+            }
+        }
+        return new ExcludeMatcher(excludes, literals.toArray(new String[literals.size()]),
+                globs.toArray(new Pattern[globs.size()]));
+    }
+
+    /**
+     * Convert a glob into an unanchored regular expression.
+     */
+    private static Pattern globToPattern(String glob) {
+        StringBuilder sb = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c != '*' && c != '?') {
+                continue;
+            }
+            if (i > start) {
+                sb.append(Pattern.quote(glob.substring(start, i)));
+            }
+            if (c == '?') {
+                sb.append("[^/]");
+            } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                sb.append(".*");
+                i++;
+            } else {
+                sb.append("[^/]*");
+            }
+            start = i + 1;
+        }
+        if (start < glob.length()) {
+            sb.append(Pattern.quote(glob.substring(start)));
+        }
+        return Pattern.compile(sb.toString());
+    }
+
+    private final Pattern[] globs;
+
+    private final String[] literals;
+
+    /** The preference value this was compiled from. */
+    private final String source;
+
+    private ExcludeMatcher(String source, String[] literals, Pattern[] globs) {
+        this.source = source;
+        this.literals = literals;
+        this.globs = globs;
+    }
+
+    /**
+     * Is <i>resource</i> excluded? For a folder or project, this means that everything within it
+     * is excluded too.
+     */
+    boolean excludes(IResource resource) {
+        if (isEmpty()) {
+            return false;
+        }
+        String path = resource.getFullPath().toString();
+        if (resource.getType() != IResource.FILE) {
+            path += "/";
+        }
+        for (String literal : literals) {
+            if (path.indexOf(literal) >= 0) {
+                return true;
+            }
+        }
+        for (Pattern glob : globs) {
+            if (glob.matcher(path).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Was this compiled from <i>excludes</i>?
+     */
+    boolean isCompiledFrom(String excludes) {
+        return source.equals(excludes == null ? "" : excludes);
+    }
+
+    /**
+     * Does this exclude nothing at all?
+     */
+    boolean isEmpty() {
+        return literals.length == 0 && globs.length == 0;
+    }
+}
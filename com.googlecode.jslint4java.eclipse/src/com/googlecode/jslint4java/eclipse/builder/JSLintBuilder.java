@@ -4,8 +4,26 @@ import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
@@ -18,9 +36,12 @@ import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Platform;
 
 import com.googlecode.jslint4java.Issue;
 import com.googlecode.jslint4java.JSLint;
+import com.googlecode.jslint4java.JSLintMetricsCollector;
 import com.googlecode.jslint4java.JSLintResult;
 import com.googlecode.jslint4java.eclipse.JSLintLog;
 import com.googlecode.jslint4java.eclipse.JSLintPlugin;
@@ -31,10 +52,10 @@ import com.googlecode.jslint4java.eclipse.JSLintPlugin;
 public class JSLintBuilder extends IncrementalProjectBuilder {
 
     private class JSLintDeltaVisitor implements IResourceDeltaVisitor {
-        private final IProgressMonitor monitor;
+        private final Candidates candidates;
 
-        public JSLintDeltaVisitor(IProgressMonitor monitor) {
-            this.monitor = monitor;
+        public JSLintDeltaVisitor(Candidates candidates) {
+            this.candidates = candidates;
         }
 
         public boolean visit(IResourceDelta delta) throws CoreException {
@@ -42,16 +63,23 @@ public class JSLintBuilder extends IncrementalProjectBuilder {
             switch (delta.getKind()) {
             case IResourceDelta.ADDED:
                 // handle added resource
-                logProgress(monitor, resource);
-                checkJavaScript(resource);
+                if (pruneExcluded(resource, candidates)) {
+                    return false;
+                }
+                checkJavaScript(resource, candidates);
                 break;
             case IResourceDelta.REMOVED:
                 // handle removed resource
+                if (resource instanceof IFile) {
+                    candidates.removed.add((IFile) resource);
+                }
                 break;
             case IResourceDelta.CHANGED:
                 // handle changed resource
-                logProgress(monitor, resource);
-                checkJavaScript(resource);
+                if (pruneExcluded(resource, candidates)) {
+                    return false;
+                }
+                checkJavaScript(resource, candidates);
                 break;
             }
             // return true to continue visiting children.
@@ -60,20 +88,87 @@ public class JSLintBuilder extends IncrementalProjectBuilder {
     }
 
     private class JSLintResourceVisitor implements IResourceVisitor {
-        private final IProgressMonitor monitor;
+        private final Candidates candidates;
 
-        public JSLintResourceVisitor(IProgressMonitor monitor) {
-            this.monitor = monitor;
+        public JSLintResourceVisitor(Candidates candidates) {
+            this.candidates = candidates;
         }
 
         public boolean visit(IResource resource) {
-            logProgress(monitor, resource);
-            checkJavaScript(resource);
+            if (pruneExcluded(resource, candidates)) {
+                return false;
+            }
+            checkJavaScript(resource, candidates);
             // return true to continue visiting children.
             return true;
         }
     }
 
+    /**
+     * The files found by the visitors.
+     */
+    private static final class Candidates {
+        /** Files to be linted. */
+        final List<IFile> lint = new ArrayList<IFile>();
+        /** Files which are excluded, and so should have no markers. */
+        final List<IFile> excluded = new ArrayList<IFile>();
+        /** Folders which are excluded, and which weren't visited. */
+        final List<IContainer> excludedFolders = new ArrayList<IContainer>();
+        /** Files which have been deleted. */
+        final List<IFile> removed = new ArrayList<IFile>();
+    }
+
+    /**
+     * A file, and the result of linting it.
+     */
+    private static final class Linted {
+        final IFile file;
+        /** Null if the file couldn't be linted. */
+        final JSLintResult result;
+        /** The modification stamp of the file, from before it was read. */
+        final long stamp;
+
+        Linted(IFile file, JSLintResult result, long stamp) {
+            this.file = file;
+            this.result = result;
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * Lint files from a shared queue using a single instance of {@link JSLint}, until the queue is
+     * empty or the build is cancelled.
+     */
+    private final class LintWorker implements Callable<Void> {
+        private final AtomicBoolean cancelled;
+        private final BlockingQueue<Linted> done;
+        private final JSLintMetricsCollector metrics;
+        private final Queue<IFile> pending;
+
+        LintWorker(Queue<IFile> pending, BlockingQueue<Linted> done, AtomicBoolean cancelled,
+                JSLintMetricsCollector metrics) {
+            this.pending = pending;
+            this.done = done;
+            this.cancelled = cancelled;
+            this.metrics = metrics;
+        }
+
+        public Void call() throws InterruptedException {
+            JSLint lint = lintProvider.borrowJsLint(getProject());
+            try {
+                lint.setMetricsListener(metrics);
+                IFile file;
+                while (!cancelled.get() && (file = pending.poll()) != null) {
+                    long stamp = file.getModificationStamp();
+                    done.put(new Linted(file, lintFile(lint, file), stamp));
+                }
+            } finally {
+                lintProvider.releaseJsLint(lint);
+            }
+            return null;
+        }
+    }
+
     // NB! Must match plugin.xml declaration.
     public static final String BUILDER_ID = JSLintPlugin.PLUGIN_ID + ".jsLintBuilder";
 
@@ -81,20 +176,40 @@ public class JSLintBuilder extends IncrementalProjectBuilder {
     public static final String MARKER_TYPE = JSLintPlugin.PLUGIN_ID
             + ".javaScriptLintProblem";
 
-    private final JSLintProvider lintProvider = new JSLintProvider();
+    /** The attributes set on each marker by {@link #addMarker(IFile, Issue)}. */
+    private static final String[] MARKER_ATTRIBUTES = { IMarker.MESSAGE, IMarker.SEVERITY,
+            IMarker.LINE_NUMBER, IMarker.SOURCE_ID };
 
-    public JSLintBuilder() {
-        lintProvider.init();
-    }
+    // NB! Must match .options declaration.
+    private static final String DEBUG_METRICS = JSLintPlugin.PLUGIN_ID + "/debug/metrics";
+
+    /** How many of the slowest files to log when tracing metrics. */
+    private static final int SLOWEST_FILES = 10;
+
+    /** How many files to update markers for in a single workspace operation. */
+    private static final int CHUNK_SIZE = 50;
+
+    /** How often to check for cancellation while waiting for results, in milliseconds. */
+    private static final int POLL_INTERVAL = 100;
+
+    private final JSLintProvider lintProvider = JSLintPlugin.getDefault().getLintProvider();
+
+    /** Non-null only during a build with metrics tracing enabled. */
+    private JSLintMetricsCollector metrics;
+
+    /** What was linted by earlier builds, loaded on first use. */
+    private LintState state;
+
+    /** What to skip during the current build. */
+    private ExcludeMatcher excludes = ExcludeMatcher.NONE;
 
     private void addMarker(IFile file, Issue issue) {
         try {
             IMarker m = file.createMarker(MARKER_TYPE);
             if (m.exists()) {
-                m.setAttribute(IMarker.MESSAGE, issue.getReason());
-                m.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_WARNING);
-                m.setAttribute(IMarker.LINE_NUMBER, issue.getLine());
-                m.setAttribute(IMarker.SOURCE_ID, "jslint4java");
+                // One call, so that only one change is recorded.
+                m.setAttributes(MARKER_ATTRIBUTES, new Object[] { issue.getReason(),
+                        IMarker.SEVERITY_WARNING, issue.getLine(), "jslint4java" });
             }
             // JSLintLog.logInfo("Added marker for " + issue);
         } catch (CoreException e) {
@@ -105,24 +220,46 @@ public class JSLintBuilder extends IncrementalProjectBuilder {
     @Override
     protected IProject[] build(final int kind, @SuppressWarnings("rawtypes") Map args,
             IProgressMonitor monitor) throws CoreException {
-        ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
-            public void run(IProgressMonitor monitor) throws CoreException {
-                if (kind == FULL_BUILD) {
-                    fullBuild(monitor);
+        metrics = isTracingMetrics() ? new JSLintMetricsCollector() : null;
+        lintProvider.watchPreferences(getProject());
+        try {
+            try {
+                getLintState().setFingerprint(lintProvider.getFingerprint(getProject()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperationCanceledException();
+            }
+            excludes = lintProvider.getExcludeMatcher(getProject());
+            Candidates candidates = new Candidates();
+            if (kind == FULL_BUILD) {
+                fullBuild(candidates);
+            } else {
+                IResourceDelta delta = getDelta(getProject());
+                if (delta == null) {
+                    fullBuild(candidates);
                 } else {
-                    IResourceDelta delta = getDelta(getProject());
-                    if (delta == null) {
-                        fullBuild(monitor);
-                    } else {
-                        incrementalBuild(delta, monitor);
-                    }
+                    incrementalBuild(delta, candidates);
                 }
             }
-        }, monitor);
+            for (IFile file : candidates.removed) {
+                getLintState().remove(file);
+            }
+            lintFiles(candidates, monitor);
+        } finally {
+            getLintState().save();
+            monitor.done();
+        }
+        if (metrics != null) {
+            logMetrics();
+            metrics = null;
+        }
         return null;
     }
 
-    private void checkJavaScript(IResource resource) {
+    /**
+     * Note <i>resource</i> in <i>candidates</i> if it's a JavaScript file.
+     */
+    private void checkJavaScript(IResource resource, Candidates candidates) {
         if (!(resource instanceof IFile)) {
             return;
         }
@@ -132,28 +269,219 @@ public class JSLintBuilder extends IncrementalProjectBuilder {
             return;
         }
 
-        // Clear out any existing problems.
-        deleteMarkers(file);
+        if (excludes.excludes(file)) {
+            candidates.excluded.add(file);
+        } else if (!getLintState().isUpToDate(file)) {
+            candidates.lint.add(file);
+        }
+    }
 
+    /**
+     * Lint a single file. This is called from worker threads, so must not touch the workspace
+     * tree.
+     *
+     * @return the result, or null if it couldn't be linted.
+     */
+    private JSLintResult lintFile(JSLint lint, IFile file) {
         BufferedReader reader = null;
         try {
-            JSLint lint = lintProvider.getJsLint(this.getProject());
-            if (checkFilter(file)) return;
-            // TODO: this should react to changes in the prefs pane instead.
             reader = new BufferedReader(new InputStreamReader(file
                     .getContents(), file.getCharset()));
-            JSLintResult result = lint.lint(file.getFullPath().toString(),
-                    reader);
-            for (Issue issue : result.getIssues()) {
-                addMarker(file, issue);
-            }
+            // If this was just linted in an editor, we'll get that result.
+            return JSLintPlugin.getDefault().getLintResults()
+                    .lint(lint, file.getFullPath().toString(), readFully(reader), true);
         } catch (IOException e) {
             JSLintLog.error(e);
         } catch (CoreException e) {
             JSLintLog.error(e);
+        } catch (RuntimeException e) {
+            // Don't let one bad file stop the others being reported.
+            JSLintLog.error(e);
         } finally {
             close(reader);
         }
+        return null;
+    }
+
+    /**
+     * Lint all <i>candidates</i> on a pool of workers, one {@link JSLint} each. Markers are
+     * updated on this thread as results arrive, {@link #CHUNK_SIZE} files per workspace
+     * operation.
+     */
+    private void lintFiles(Candidates candidates, IProgressMonitor monitor) throws CoreException {
+        clearExcluded(candidates);
+        List<Linted> chunk = new ArrayList<Linted>();
+        int total = candidates.lint.size();
+        startProgress(monitor, total);
+        if (total == 0) {
+            return;
+        }
+        Queue<IFile> pending = new ConcurrentLinkedQueue<IFile>(candidates.lint);
+        BlockingQueue<Linted> done = new LinkedBlockingQueue<Linted>();
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        int threads = Math.min(lintProvider.getPoolSize(), total);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Void>> workers = new ArrayList<Future<Void>>(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(new LintWorker(pending, done, cancelled, metrics)));
+            }
+            int received = 0;
+            while (received < total) {
+                if (monitor.isCanceled()) {
+                    cancelled.set(true);
+                    break;
+                }
+                Linted linted = done.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (linted == null) {
+                    if (allDone(workers) && done.isEmpty()) {
+                        // A worker died; anything it didn't get to is lost.
+                        break;
+                    }
+                    continue;
+                }
+                received++;
+                chunk.add(linted);
+                if (chunk.size() >= CHUNK_SIZE || received == total) {
+                    logProgress(monitor, linted.file);
+                    updateMarkers(chunk);
+                    monitor.worked(chunk.size());
+                    chunk.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled.set(true);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (!chunk.isEmpty()) {
+            updateMarkers(chunk);
+        }
+        logFailures(workers);
+        if (cancelled.get()) {
+            // Make sure that the files we skipped get linted next time.
+            forgetLastBuiltState();
+            throw new OperationCanceledException();
+        }
+    }
+
+    /**
+     * Remove markers from everything which is excluded, in case it wasn't previously.
+     */
+    private void clearExcluded(final Candidates candidates) throws CoreException {
+        if (candidates.excluded.isEmpty() && candidates.excludedFolders.isEmpty()) {
+            return;
+        }
+        ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+            public void run(IProgressMonitor monitor) throws CoreException {
+                for (IFile file : candidates.excluded) {
+                    deleteMarkers(file);
+                    getLintState().remove(file);
+                }
+                for (IContainer folder : candidates.excludedFolders) {
+                    folder.deleteMarkers(MARKER_TYPE, false, IResource.DEPTH_INFINITE);
+                    getLintState().removeUnder(folder);
+                }
+            }
+        }, null);
+    }
+
+    private boolean allDone(List<Future<Void>> futures) {
+        for (Future<Void> future : futures) {
+            if (!future.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void logFailures(List<Future<Void>> workers) {
+        for (Future<Void> worker : workers) {
+            if (!worker.isDone() || worker.isCancelled()) {
+                continue;
+            }
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                JSLintLog.error(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Make the markers on each file in <i>chunk</i> match its issues, in a single workspace
+     * operation so that listeners are only notified once.
+     */
+    private void updateMarkers(final List<Linted> chunk) throws CoreException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+            public void run(IProgressMonitor monitor) throws CoreException {
+                List<IMarker> stale = new ArrayList<IMarker>();
+                for (Linted linted : chunk) {
+                    if (linted.result == null) {
+                        // Clear out any existing problems.
+                        deleteMarkers(linted.file);
+                        getLintState().remove(linted.file);
+                    } else {
+                        reconcileMarkers(linted.file, linted.result.getIssues(), stale);
+                        getLintState().update(linted.file, linted.stamp);
+                    }
+                }
+                if (!stale.isEmpty()) {
+                    ResourcesPlugin.getWorkspace().deleteMarkers(
+                            stale.toArray(new IMarker[stale.size()]));
+                }
+            }
+        }, null);
+    }
+
+    /**
+     * Add markers for those of <i>issues</i> which <i>file</i> doesn't already have one for, by
+     * line and reason. Existing markers which no longer match an issue are added to
+     * <i>stale</i>. Files whose issues haven't changed are left alone, so nothing is fired for
+     * them.
+     */
+    private void reconcileMarkers(IFile file, List<Issue> issues, List<IMarker> stale) {
+        IMarker[] existing;
+        try {
+            existing = file.findMarkers(MARKER_TYPE, false, IResource.DEPTH_ZERO);
+        } catch (CoreException e) {
+            JSLintLog.error(e);
+            return;
+        }
+        // The same issue may be reported more than once on a line, so keep a list per key.
+        Map<String, List<IMarker>> byKey = new HashMap<String, List<IMarker>>();
+        for (IMarker marker : existing) {
+            String key = markerKey(marker.getAttribute(IMarker.LINE_NUMBER, -1),
+                    marker.getAttribute(IMarker.MESSAGE, ""));
+            List<IMarker> markers = byKey.get(key);
+            if (markers == null) {
+                markers = new ArrayList<IMarker>(1);
+                byKey.put(key, markers);
+            }
+            markers.add(marker);
+        }
+        for (Issue issue : issues) {
+            List<IMarker> markers = byKey.get(markerKey(issue.getLine(), issue.getReason()));
+            if (markers != null && !markers.isEmpty()) {
+                // Already marked; keep it.
+                markers.remove(markers.size() - 1);
+            } else {
+                addMarker(file, issue);
+            }
+        }
+        for (List<IMarker> markers : byKey.values()) {
+            stale.addAll(markers);
+        }
+    }
+
+    private String markerKey(int line, String reason) {
+        return line + ":" + reason;
     }
 
     /**
@@ -165,20 +493,25 @@ public class JSLintBuilder extends IncrementalProjectBuilder {
     }
 
     /**
-     * Check if file matches preference-specified exclude string
+     * If <i>resource</i> is an excluded folder, note it in <i>candidates</i> so that anything
+     * within it can be cleared up, and return true so that it isn't visited.
      */
+    private boolean pruneExcluded(IResource resource, Candidates candidates) {
+        if (resource.getType() == IResource.FILE || !excludes.excludes(resource)) {
+            return false;
+        }
+        candidates.excludedFolders.add((IContainer) resource);
+        return true;
+    }
 
-    private boolean checkFilter(IFile file) {
-        String path = file.getFullPath().toString();
-        String excludes = lintProvider.getOptionFromPref("Exclude");
-        String[] tokens = excludes.split("[ ,]+");
-        for (String s : tokens) {
-            s = s.trim();
-            if ((!s.equals("")) && path.indexOf(s) >= 0) {
-                return true;
-            }
+    private String readFully(Reader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[8192];
+        int n;
+        while ((n = reader.read(buf)) != -1) {
+            sb.append(buf, 0, n);
         }
-        return false;
+        return sb.toString();
     }
 
     private void close(Closeable close) {
@@ -199,29 +532,39 @@ public class JSLintBuilder extends IncrementalProjectBuilder {
         }
     }
 
-    private void fullBuild(final IProgressMonitor monitor) throws CoreException {
+    private void fullBuild(Candidates candidates) {
         try {
-            startProgress(monitor);
-            getProject().accept(new JSLintResourceVisitor(monitor));
+            getProject().accept(new JSLintResourceVisitor(candidates));
         } catch (CoreException e) {
             JSLintLog.error(e);
-        } finally {
-            monitor.done();
         }
     }
 
-    private void incrementalBuild(IResourceDelta delta, IProgressMonitor monitor)
-            throws CoreException {
-        try {
-            startProgress(monitor);
-            delta.accept(new JSLintDeltaVisitor(monitor));
-        } finally {
-            monitor.done();
+    private LintState getLintState() {
+        if (state == null) {
+            state = new LintState(JSLintPlugin.getDefault().getStateLocation().append("state")
+                    .append(getProject().getName() + ".properties").toFile());
         }
+        return state;
+    }
+
+    private boolean isTracingMetrics() {
+        return "true".equalsIgnoreCase(Platform.getDebugOption(DEBUG_METRICS));
+    }
+
+    private void logMetrics() {
+        StringWriter sw = new StringWriter();
+        metrics.writeSummary(new PrintWriter(sw), SLOWEST_FILES);
+        JSLintLog.info("jslint4java metrics for %s:%n%s", getProject().getName(), sw);
+    }
+
+    private void incrementalBuild(IResourceDelta delta, Candidates candidates)
+            throws CoreException {
+        delta.accept(new JSLintDeltaVisitor(candidates));
     }
 
-    private void startProgress(IProgressMonitor monitor) {
-        monitor.beginTask("jslint4java", IProgressMonitor.UNKNOWN);
+    private void startProgress(IProgressMonitor monitor, int files) {
+        monitor.beginTask("jslint4java", files);
     }
 
     private void logProgress(IProgressMonitor monitor, IResource resource) {
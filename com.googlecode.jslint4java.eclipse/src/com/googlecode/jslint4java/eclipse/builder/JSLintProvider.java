@@ -1,5 +1,10 @@
 package com.googlecode.jslint4java.eclipse.builder;
 
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.ProjectScope;
 import org.eclipse.core.runtime.Platform;
@@ -7,97 +12,255 @@ import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
 import org.eclipse.core.runtime.preferences.IPreferencesService;
+import org.osgi.service.prefs.BackingStoreException;
 
 import com.googlecode.jslint4java.JSLint;
 import com.googlecode.jslint4java.JSLintBuilder;
+import com.googlecode.jslint4java.JSLintPool;
 import com.googlecode.jslint4java.Option;
 import com.googlecode.jslint4java.eclipse.JSLintLog;
 import com.googlecode.jslint4java.eclipse.JSLintPlugin;
 
 /**
  * Provide a fully configured instance of {@link JSLint} on demand.
+ *
+ * <p>
+ * Every project has its own preferences. These are read once, and read again only after that
+ * project's preferences change. All projects borrow from the same pool of JSLint instances,
+ * which are just given a different set of options, so fulljslint.js is only ever compiled once.
+ *
+ * @see JSLintPlugin#getLintProvider()
  */
 public class JSLintProvider {
 
+    /**
+     * What we know about a single project's preferences.
+     */
+    private final class ProjectSettings implements IPreferenceChangeListener {
+        final IEclipsePreferences node;
+
+        /** The compiled "Exclude" preference. */
+        ExcludeMatcher excludeMatcher = ExcludeMatcher.NONE;
+
+        /** The fingerprint of an instance configured with {@link #options}, once known. */
+        String fingerprint;
+
+        /** Each option which has a value, or null if they need reading again. */
+        Map<Option, String> options;
+
+        ProjectSettings(IEclipsePreferences node) {
+            this.node = node;
+        }
+
+        public void preferenceChange(PreferenceChangeEvent ev) {
+            synchronized (JSLintProvider.this) {
+                options = null;
+                fingerprint = null;
+            }
+            JSLintLog.info("pref %s changed; rereading options", ev.getKey());
+        }
+    }
+
     private final JSLintBuilder builder = new JSLintBuilder();
 
-    private JSLint jsLint;
-    private IEclipsePreferences usePreferenceStore;
+    /** Instances for linting in parallel, created on first use. Guarded by {@code this}. */
+    private JSLintPool pool;
+
+    /** Guarded by {@code this}. */
+    private final Map<IProject, ProjectSettings> settings = new HashMap<IProject, ProjectSettings>();
 
     /**
-     * Set up a listener for preference changes. This will ensure that the instance of
-     * {@link JSLint} that we have is kept in sync with the users choices. We do this by ensuring
-     * that a new JSLint will be created and configured on the next request.
+     * Preferences are watched per project, as they are first asked for, so there is nothing to
+     * set up here.
      */
     public void init() {
-        // This code doesn't work because InstanceScope is different than ProjectScope
-        // If IProject were available here, it would be good, but not obvious how to get
-        // it. Thus doing initialization with IProject in getJsLint
-        
-//        IEclipsePreferences x = new InstanceScope().getNode(JSLintPlugin.PLUGIN_ID);
-//        x.addPreferenceChangeListener(new IPreferenceChangeListener() {
-//            public void preferenceChange(PreferenceChangeEvent ev) {
-//                jsLint = null;
-//                JSLintLog.info("pref %s changed; nulling jsLint", ev.getKey());
-//            }
-//        });
     }
 
     /**
-     * Return a fully configured instance of JSLint. This should not be cached; each use should call
-     * this method.
-     * @param project 
+     * Stop listening for preference changes.
+     */
+    public synchronized void dispose() {
+        for (ProjectSettings s : settings.values()) {
+            s.node.removePreferenceChangeListener(s);
+        }
+        settings.clear();
+    }
+
+    /**
+     * Take an instance of JSLint from a pool shared by all callers, configured using the current
+     * preferences. This may be called from any thread, so several files can be linted at once.
+     * The instance must be handed back to
+     * {@link #releaseJsLint(JSLint)} when finished with.
+     *
+     * @throws InterruptedException
+     *             if interrupted whilst waiting for another thread to release an instance.
      */
-    public JSLint getJsLint(IProject project) {
-        if (jsLint == null) {
-            // TODO: Allow for non-default versions of fulljslint.js.
-            jsLint = builder.fromDefault();
-            if (usePreferenceStore == null) {
-                usePreferenceStore = new ProjectScope(project).getNode(JSLintPlugin.PLUGIN_ID);
-
-                usePreferenceStore.addPreferenceChangeListener(new IPreferenceChangeListener() {
-                    public void preferenceChange(PreferenceChangeEvent ev) {
-                        jsLint = null;
-                        JSLintLog.info("pref %s changed; nulling jsLint", ev.getKey());
-                    }
-                });
+    public JSLint borrowJsLint(IProject project) throws InterruptedException {
+        Map<Option, String> options;
+        synchronized (this) {
+            options = getOptions(project);
+        }
+        return borrowJsLint(options);
+    }
+
+    private JSLint borrowJsLint(Map<Option, String> options) throws InterruptedException {
+        JSLintPool p;
+        synchronized (this) {
+            if (pool == null) {
+                // TODO: Allow for non-default versions of fulljslint.js.
+                // One more than a build uses, so that linting as you type never waits for it.
+                pool = builder.poolFromDefault(getPoolSize() + 1);
             }
-            configure();
+            p = pool;
+        }
+        JSLint lint = p.borrow();
+        configure(lint, options);
+        return lint;
+    }
+
+    /**
+     * Return the {@link JSLint#getFingerprint() fingerprint} of an instance configured for
+     * <i>project</i>.
+     *
+     * @throws InterruptedException
+     *             if interrupted whilst waiting for an instance.
+     */
+    public String getFingerprint(IProject project) throws InterruptedException {
+        Map<Option, String> options;
+        synchronized (this) {
+            ProjectSettings s = getSettings(project);
+            if (s.fingerprint != null) {
+                return s.fingerprint;
+            }
+            options = getOptions(project);
+        }
+        JSLint lint = borrowJsLint(options);
+        try {
+            String fingerprint = lint.getFingerprint();
+            synchronized (this) {
+                ProjectSettings s = getSettings(project);
+                // Unless they've changed in the meantime.
+                if (s.options == options) {
+                    s.fingerprint = fingerprint;
+                }
+            }
+            return fingerprint;
+        } finally {
+            releaseJsLint(lint);
+        }
+    }
+
+    /**
+     * How many instances a build should borrow at most. The pool holds one more, which is left
+     * for {@link JSLintValidationParticipant}, so that an editor is linted promptly even during a
+     * full build.
+     */
+    public int getPoolSize() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Return an instance obtained from {@link #borrowJsLint(IProject)}.
+     */
+    public void releaseJsLint(JSLint lint) {
+        JSLintPool p;
+        synchronized (this) {
+            p = pool;
+        }
+        p.release(lint);
+    }
+
+    /**
+     * Make sure that preferences are read from <i>project</i>, and that we notice when they
+     * change.
+     */
+    public synchronized void watchPreferences(IProject project) {
+        getSettings(project);
+    }
+
+    /**
+     * Return the "Exclude" preference of <i>project</i>, compiled. It is only compiled again when
+     * it changes.
+     */
+    synchronized ExcludeMatcher getExcludeMatcher(IProject project) {
+        ProjectSettings s = getSettings(project);
+        String excludes = getOptionFromPref(s.node, "Exclude");
+        if (!s.excludeMatcher.isCompiledFrom(excludes)) {
+            s.excludeMatcher = ExcludeMatcher.compile(excludes);
+        }
+        return s.excludeMatcher;
+    }
+
+    public String getOptionFromPref(IProject project, String opt) {
+        IEclipsePreferences node;
+        synchronized (this) {
+            node = getSettings(project).node;
         }
-        return jsLint;
+        return getOptionFromPref(node, opt);
     }
-    
-    public String getOptionFromPref(String opt) {
+
+    private String getOptionFromPref(IEclipsePreferences prefStore, String opt) {
         String ret;
-        IEclipsePreferences prefStore = usePreferenceStore;
         ret = prefStore.get(opt, null);
         if (ret != null) {
             return ret;
         } else {
             IPreferencesService prefService = Platform.getPreferencesService();
             return prefService.getString(JSLintPlugin.PLUGIN_ID, opt, null, null);
-        } 
+        }
     }
 
-    /** Set up the current instance of JSLint using the current preferences. */
-    public void configure() {
-        JSLint lint = jsLint;
+    private void configure(JSLint lint, Map<Option, String> options) {
         lint.resetOptions();
-        IEclipsePreferences prefStore = usePreferenceStore;
-        IPreferencesService prefService = Platform.getPreferencesService();
-
-        for (Option o : Option.values()) {
-            String value = prefStore.get(o.getLowerName(), null);
-            if (value != null) {
-//                JSLintLog.info("addOption %s is %s", o.getLowerName(), value);
-                lint.addOption(o, value);
-            } else { // Check if default to set
-                value = prefService.getString(JSLintPlugin.PLUGIN_ID, o.getLowerName(), null, null);
+        // The builder only ever looks at the issues.
+        lint.setCollectReports(false);
+        for (Entry<Option, String> entry : options.entrySet()) {
+            lint.addOption(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Return the options set for <i>project</i>, reading them if they have changed. The same map
+     * is returned until they change again. Must be called with the lock held.
+     */
+    private Map<Option, String> getOptions(IProject project) {
+        ProjectSettings s = getSettings(project);
+        if (s.options == null) {
+            Map<Option, String> options = new EnumMap<Option, String>(Option.class);
+            for (Option o : Option.values()) {
+                String value = getOptionFromPref(s.node, o.getLowerName());
                 if (value != null) {
-                    lint.addOption(o, value);
-//                    JSLintLog.info("addOption from Service %s is %s", o.getLowerName(), value);
+                    options.put(o, value);
                 }
             }
+            s.options = options;
+        }
+        return s.options;
+    }
+
+    /**
+     * Return the settings of <i>project</i>, starting to listen for changes to them if this is
+     * the first time we've seen it. Must be called with the lock held.
+     */
+    private ProjectSettings getSettings(IProject project) {
+        ProjectSettings s = settings.get(project);
+        if (s != null && !exists(s.node)) {
+            // The project was deleted, and there's a new one of the same name.
+            s = null;
+        }
+        if (s == null) {
+            s = new ProjectSettings(new ProjectScope(project).getNode(JSLintPlugin.PLUGIN_ID));
+            s.node.addPreferenceChangeListener(s);
+            settings.put(project, s);
+        }
+        return s;
+    }
+
+    private boolean exists(IEclipsePreferences node) {
+        try {
+            return node.nodeExists("");
+        } catch (BackingStoreException e) {
+            return false;
         }
     }
 }
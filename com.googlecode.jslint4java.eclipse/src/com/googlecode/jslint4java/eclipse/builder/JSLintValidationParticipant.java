@@ -0,0 +1,305 @@
+package com.googlecode.jslint4java.eclipse.builder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.wst.jsdt.core.IJavaScriptProject;
+import org.eclipse.wst.jsdt.core.IJavaScriptUnit;
+import org.eclipse.wst.jsdt.core.JavaScriptModelException;
+import org.eclipse.wst.jsdt.core.compiler.CategorizedProblem;
+import org.eclipse.wst.jsdt.core.compiler.ReconcileContext;
+import org.eclipse.wst.jsdt.core.compiler.ValidationParticipant;
+
+import com.googlecode.jslint4java.Issue;
+import com.googlecode.jslint4java.JSLint;
+import com.googlecode.jslint4java.JSLintResult;
+import com.googlecode.jslint4java.eclipse.JSLintLog;
+import com.googlecode.jslint4java.eclipse.JSLintPlugin;
+
+/**
+ * Lints JavaScript editors as they are typed in, showing issues as temporary problems.
+ *
+ * <p>
+ * JSDT calls {@link #reconcile(ReconcileContext)} on its reconciler thread whenever an editor
+ * pauses. If the current contents have already been linted, the issues are reported straight
+ * away. Otherwise a {@link LintJob} is scheduled after a short delay, replacing (and cancelling)
+ * any which is pending for the same file. When it's done, it asks for the file to be reconciled
+ * again, which picks up the new result. Until then, the previous issues are reported.
+ *
+ * <p>
+ * Jobs borrow from the same pool of instances as the builder, which leaves one free for them
+ * (see {@link JSLintProvider#getPoolSize()}), so they don't wait for a build to finish.
+ *
+ * <p>
+ * Results go through {@link JSLintPlugin#getLintResults()}, so the builder won't lint the same
+ * contents again when the file is saved.
+ */
+public class JSLintValidationParticipant extends ValidationParticipant {
+
+    /**
+     * The source of a file, and the result of linting it.
+     */
+    private static final class Linted {
+        final String source;
+        final JSLintResult result;
+
+        Linted(String source, JSLintResult result) {
+            this.source = source;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Lint the contents of an editor in the background.
+     */
+    private final class LintJob extends Job {
+        private final IFile file;
+        private final String source;
+        private final IJavaScriptUnit workingCopy;
+
+        LintJob(IJavaScriptUnit workingCopy, IFile file, String source) {
+            super("jslint4java: " + file.getName());
+            this.workingCopy = workingCopy;
+            this.file = file;
+            this.source = source;
+            setSystem(true);
+            setPriority(DECORATE);
+        }
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            try {
+                if (monitor.isCanceled()) {
+                    return Status.CANCEL_STATUS;
+                }
+                JSLintResult result;
+                try {
+                    JSLint lint = lintProvider.borrowJsLint(file.getProject());
+                    try {
+                        result = JSLintPlugin.getDefault().getLintResults()
+                                .lint(lint, systemId(file), source, false);
+                    } finally {
+                        lintProvider.releaseJsLint(lint);
+                    }
+                } catch (InterruptedException e) {
+                    return Status.CANCEL_STATUS;
+                }
+                synchronized (latest) {
+                    latest.put(systemId(file), new Linted(source, result));
+                }
+                if (monitor.isCanceled()) {
+                    return Status.CANCEL_STATUS;
+                }
+                // Show it, unless the editor has moved on, in which case another job is coming.
+                if (workingCopy.isWorkingCopy() && source.equals(workingCopy.getSource())) {
+                    workingCopy.reconcile(IJavaScriptUnit.NO_AST, true, null, monitor);
+                }
+                return Status.OK_STATUS;
+            } catch (JavaScriptModelException e) {
+                return e.getStatus();
+            } finally {
+                synchronized (jobs) {
+                    if (jobs.get(systemId(file)) == this) {
+                        jobs.remove(systemId(file));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * An issue, in a form which JSDT can report in an editor.
+     */
+    private static final class JSLintProblem extends CategorizedProblem {
+        private final char[] fileName;
+        private final int line;
+        private final String message;
+        private int end;
+        private int start;
+
+        JSLintProblem(char[] fileName, String message, int line, int start, int end) {
+            this.fileName = fileName;
+            this.message = message;
+            this.line = line;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String[] getArguments() {
+            return new String[0];
+        }
+
+        @Override
+        public int getCategoryID() {
+            return CAT_CODE_STYLE;
+        }
+
+        public int getID() {
+            return 0;
+        }
+
+        @Override
+        public String getMarkerType() {
+            return JSLintBuilder.MARKER_TYPE;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public char[] getOriginatingFileName() {
+            return fileName;
+        }
+
+        public int getSourceEnd() {
+            return end;
+        }
+
+        public int getSourceLineNumber() {
+            return line;
+        }
+
+        public int getSourceStart() {
+            return start;
+        }
+
+        public boolean isError() {
+            return false;
+        }
+
+        public boolean isWarning() {
+            return true;
+        }
+
+        public void setSourceEnd(int sourceEnd) {
+            end = sourceEnd;
+        }
+
+        public void setSourceLineNumber(int lineNumber) {
+            // Not needed.
+        }
+
+        public void setSourceStart(int sourceStart) {
+            start = sourceStart;
+        }
+    }
+
+    /** How long to wait after the last change before linting, in milliseconds. */
+    private static final long DELAY = 500;
+
+    /** How many files to remember the latest result for. */
+    private static final int LATEST_SIZE = 32;
+
+    /** The pending job for each file. Guarded by itself. */
+    private final Map<String, LintJob> jobs = new HashMap<String, LintJob>();
+
+    /** The latest result for each file. Guarded by itself. */
+    @SuppressWarnings("serial")
+    private final Map<String, Linted> latest = new LinkedHashMap<String, Linted>(LATEST_SIZE,
+            0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Linted> eldest) {
+            return size() > LATEST_SIZE;
+        }
+    };
+
+    private final JSLintProvider lintProvider = JSLintPlugin.getDefault().getLintProvider();
+
+    @Override
+    public boolean isActive(IJavaScriptProject project) {
+        try {
+            return project.getProject().hasNature(JSLintNature.NATURE_ID);
+        } catch (CoreException e) {
+            // Closed or missing.
+            return false;
+        }
+    }
+
+    @Override
+    public void reconcile(ReconcileContext context) {
+        IJavaScriptUnit workingCopy = context.getWorkingCopy();
+        IResource resource = workingCopy.getResource();
+        if (!(resource instanceof IFile) || !resource.getName().endsWith(".js")) {
+            return;
+        }
+        IFile file = (IFile) resource;
+        if (lintProvider.getExcludeMatcher(file.getProject()).excludes(file)) {
+            return;
+        }
+        String source;
+        try {
+            source = workingCopy.getSource();
+        } catch (JavaScriptModelException e) {
+            JSLintLog.error(e);
+            return;
+        }
+        Linted last;
+        synchronized (latest) {
+            last = latest.get(systemId(file));
+        }
+        if (last != null) {
+            context.putProblems(JSLintBuilder.MARKER_TYPE, toProblems(file, source, last.result));
+        }
+        if (last == null || !last.source.equals(source)) {
+            schedule(workingCopy, file, source);
+        }
+    }
+
+    /**
+     * Start linting <i>source</i> soon, unless something else comes along first.
+     */
+    private void schedule(IJavaScriptUnit workingCopy, IFile file, String source) {
+        LintJob job = new LintJob(workingCopy, file, source);
+        synchronized (jobs) {
+            LintJob pending = jobs.put(systemId(file), job);
+            if (pending != null) {
+                pending.cancel();
+            }
+        }
+        job.schedule(DELAY);
+    }
+
+    private String systemId(IFile file) {
+        // The same as the builder, so that results can be shared.
+        return file.getFullPath().toString();
+    }
+
+    /**
+     * Convert <i>result</i> into problems positioned within <i>source</i>. If the result is for
+     * an older version of the source, positions are clamped to fit.
+     */
+    private CategorizedProblem[] toProblems(IFile file, String source, JSLintResult result) {
+        List<Integer> lineStarts = new ArrayList<Integer>();
+        lineStarts.add(0);
+        for (int i = source.indexOf('\n'); i != -1; i = source.indexOf('\n', i + 1)) {
+            lineStarts.add(i + 1);
+        }
+        char[] fileName = systemId(file).toCharArray();
+        List<Issue> issues = result.getIssues();
+        CategorizedProblem[] problems = new CategorizedProblem[issues.size()];
+        for (int i = 0; i < problems.length; i++) {
+            Issue issue = issues.get(i);
+            int line = Math.max(1, Math.min(issue.getLine(), lineStarts.size()));
+            int start = Math.min(source.length(),
+                    lineStarts.get(line - 1) + Math.max(0, issue.getCharacter() - 1));
+            // Cover the whole of any word at that point.
+            int end = start;
+            while (end + 1 < source.length()
+                    && Character.isJavaIdentifierPart(source.charAt(end + 1))) {
+                end++;
+            }
+            problems[i] = new JSLintProblem(fileName, issue.getReason(), line, start, end);
+        }
+        return problems;
+    }
+}
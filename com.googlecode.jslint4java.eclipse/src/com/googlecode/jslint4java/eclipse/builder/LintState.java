@@ -0,0 +1,176 @@
+package com.googlecode.jslint4java.eclipse.builder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Properties;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+
+import com.googlecode.jslint4java.JSLint;
+import com.googlecode.jslint4java.eclipse.JSLintLog;
+
+/**
+ * Remembers the modification stamp of each file in a project when it was last linted, along with
+ * the {@link JSLint#getFingerprint() fingerprint} of the options used. This lets a full build skip
+ * files which haven't changed since, keeping their existing markers.
+ *
+ * <p>
+ * The state is stored as a properties file, keyed by project relative path. It is only used from
+ * the build thread, so isn't thread safe.
+ */
+class LintState {
+
+    /** The key which holds the fingerprint. Can't clash with a linted file, as it has no ".js". */
+    private static final String FINGERPRINT = "#fingerprint";
+
+    /**
+     * Stored with the fingerprint. Bump this to make every file out of date, such as when the
+     * markers written by earlier versions can't be trusted. Version 2: builds before it linted in
+     * parallel on instances which interfered with each other.
+     */
+    private static final String FORMAT = "2";
+
+    private final File file;
+
+    private boolean dirty = false;
+
+    private Properties stamps;
+
+    /**
+     * Create a state which will be stored in <i>file</i>.
+     */
+    LintState(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Has <i>resource</i> been linted since it last changed?
+     */
+    boolean isUpToDate(IFile resource) {
+        String stamp = stamps().getProperty(key(resource));
+        long current = resource.getModificationStamp();
+        return stamp != null && current != IResource.NULL_STAMP
+                && stamp.equals(Long.toString(current));
+    }
+
+    /**
+     * Forget about <i>resource</i>, so that it will be linted next time.
+     */
+    void remove(IFile resource) {
+        if (stamps().remove(key(resource)) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Forget about every file within <i>container</i>.
+     */
+    void removeUnder(IContainer container) {
+        String prefix = container.getProjectRelativePath().toPortableString();
+        if (prefix.length() > 0) {
+            prefix += "/";
+        }
+        Iterator<Object> keys = stamps().keySet().iterator();
+        while (keys.hasNext()) {
+            String key = (String) keys.next();
+            if (key.startsWith(prefix) && !key.equals(FINGERPRINT)) {
+                keys.remove();
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Write out any changes.
+     */
+    void save() {
+        if (!dirty) {
+            return;
+        }
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(file));
+            stamps().store(out, "jslint4java lint state");
+            dirty = false;
+        } catch (IOException e) {
+            // Not fatal; we'll just lint everything next time.
+            JSLintLog.error(e);
+        } finally {
+            close(out);
+        }
+    }
+
+    /**
+     * Note which options are in use. If they differ from last time, every file is out of date.
+     */
+    void setFingerprint(String fingerprint) {
+        fingerprint = FORMAT + ";" + fingerprint;
+        if (!fingerprint.equals(stamps().getProperty(FINGERPRINT))) {
+            stamps().clear();
+            stamps().setProperty(FINGERPRINT, fingerprint);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Record that <i>resource</i> has been linted, as it was at modification stamp <i>stamp</i>.
+     */
+    void update(IFile resource, long stamp) {
+        if (stamp == IResource.NULL_STAMP) {
+            remove(resource);
+        } else {
+            stamps().setProperty(key(resource), Long.toString(stamp));
+            dirty = true;
+        }
+    }
+
+    private void close(Closeable c) {
+        if (c == null) {
+            return;
+        }
+        try {
+            c.close();
+        } catch (IOException e) {
+        }
+    }
+
+    private String key(IFile resource) {
+        return resource.getProjectRelativePath().toPortableString();
+    }
+
+    /**
+     * Load the stored state on first use.
+     */
+    private Properties stamps() {
+        if (stamps == null) {
+            stamps = new Properties();
+            if (file.isFile()) {
+                InputStream in = null;
+                try {
+                    in = new BufferedInputStream(new FileInputStream(file));
+                    stamps.load(in);
+                } catch (IOException e) {
+                    // Start afresh.
+                    stamps.clear();
+                } finally {
+                    close(in);
+                }
+            }
+        }
+        return stamps;
+    }
+}
@@ -0,0 +1,170 @@
+package com.googlecode.jslint4java;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.Scriptable;
+
+import com.googlecode.jslint4java.Issue.IssueBuilder;
+import com.googlecode.jslint4java.JSLintResult.ResultBuilder;
+
+/**
+ * Pull issues and functions out of JSLINT in a single call, instead of one {@link Scriptable#get}
+ * per field.
+ *
+ * <p>
+ * A small JavaScript helper walks {@code JSLINT.errors} and {@code JSLINT.data().functions},
+ * packing every field into one flat array, which is joined into a single string. That string is
+ * then decoded here in one pass. Fields are separated by U+0000; a field which is not a string is
+ * sent as U+0001 and decoded as null. Any U+0000 or U+0001 within a string value is replaced with
+ * U+FFFD.
+ *
+ * <p>
+ * The layout is: the number of issues, then for each issue: line, character, reason, evidence,
+ * raw, a, b, c, d. Then the number of functions, then for each function: name, line, last,
+ * followed by a count and values for each of param, closure, var, exception, outer, unused,
+ * global and label.
+ */
+final class BulkExtractor {
+
+    /**
+     * Walks the output of a single decode.
+     */
+    private static final class Fields {
+        private final String packed;
+        private int pos = 0;
+
+        Fields(String packed) {
+            this.packed = packed;
+        }
+
+        int nextInt() {
+            return Integer.parseInt(next());
+        }
+
+        String next() {
+            int end = packed.indexOf(SEP, pos);
+            if (end == -1) {
+                end = packed.length();
+            }
+            String field = packed.substring(pos, end);
+            pos = end + 1;
+            return NULL.equals(field) ? null : field;
+        }
+    }
+
+    private static final char SEP = '\u0000';
+
+    private static final String NULL = "\u0001";
+
+    private static final String SOURCE = "function (errors, functions) {\n"
+            + "    var out = [0], i, j, k, e, f, list, count = 0,\n"
+            + "        lists = ['closure', 'var', 'exception', 'outer', 'unused', 'global', 'label'];\n"
+            + "    function str(v) {\n"
+            + "        out.push(typeof v === 'string' ? v.replace(/[\\u0000\\u0001]/g, '\\ufffd') : '\\u0001');\n"
+            + "    }\n"
+            + "    function num(v) {\n"
+            + "        out.push((+v) | 0);\n"
+            + "    }\n"
+            + "    function strs(a) {\n"
+            + "        var n = a && a.length ? a.length : 0, m;\n"
+            + "        out.push(n);\n"
+            + "        for (m = 0; m < n; m += 1) {\n"
+            + "            str(a[m]);\n"
+            + "        }\n"
+            + "    }\n"
+            + "    for (i = 0; errors && i < errors.length; i += 1) {\n"
+            + "        e = errors[i];\n"
+            + "        if (e) {\n"
+            + "            count += 1;\n"
+            + "            num(e.line); num(e.character); str(e.reason); str(e.evidence);\n"
+            + "            str(e.raw); str(e.a); str(e.b); str(e.c); str(e.d);\n"
+            + "        }\n"
+            + "    }\n"
+            + "    out[0] = count;\n"
+            + "    k = functions && functions.length ? functions.length : 0;\n"
+            + "    out.push(k);\n"
+            + "    for (i = 0; i < k; i += 1) {\n"
+            + "        f = functions[i];\n"
+            + "        str(f.name); num(f.line); num(f.last);\n"
+            + "        list = f.param && f.param.length ? f.param : [];\n"
+            + "        out.push(list.length);\n"
+            + "        for (j = 0; j < list.length; j += 1) {\n"
+            + "            str(list[j] ? list[j].value : undefined);\n"
+            + "        }\n"
+            + "        for (j = 0; j < lists.length; j += 1) {\n"
+            + "            strs(f[lists[j]]);\n"
+            + "        }\n"
+            + "    }\n"
+            + "    return out.join('\\u0000');\n"
+            + "}";
+
+    private final Function extract;
+
+    /**
+     * Compile the helper. This does not define anything in <i>scope</i>, so it is safe to use
+     * with a sealed scope.
+     */
+    BulkExtractor(Context cx, Scriptable scope) {
+        extract = cx.compileFunction(scope, SOURCE, "jslint4java-extract", 1, null);
+    }
+
+    /**
+     * Decode all issues and functions onto <i>b</i>.
+     *
+     * @param errors
+     *            the value of {@code JSLINT.errors}.
+     * @param functions
+     *            the value of {@code JSLINT.data().functions}, or undefined.
+     */
+    void extract(Context cx, Scriptable scope, String systemId, Object errors, Object functions,
+            ResultBuilder b) {
+        Object packed = extract.call(cx, scope, scope, new Object[] { errors, functions });
+        Fields fields = new Fields(Context.toString(packed));
+        int issueCount = fields.nextInt();
+        for (int i = 0; i < issueCount; i++) {
+            int line = fields.nextInt();
+            int col = fields.nextInt();
+            String reason = fields.next();
+            b.addIssue(new IssueBuilder(systemId, line, col, reason)
+                    .evidence(fields.next())
+                    .raw(fields.next())
+                    .a(fields.next())
+                    .b(fields.next())
+                    .c(fields.next())
+                    .d(fields.next())
+                    .build());
+        }
+        int functionCount = fields.nextInt();
+        for (int i = 0; i < functionCount; i++) {
+            String name = fields.next();
+            int line = fields.nextInt();
+            JSFunction.Builder fb = new JSFunction.Builder(name, line);
+            fb.last(fields.nextInt());
+            for (int n = fields.nextInt(); n > 0; n--) {
+                fb.addParam(fields.next());
+            }
+            for (int n = fields.nextInt(); n > 0; n--) {
+                fb.addClosure(fields.next());
+            }
+            for (int n = fields.nextInt(); n > 0; n--) {
+                fb.addVar(fields.next());
+            }
+            for (int n = fields.nextInt(); n > 0; n--) {
+                fb.addException(fields.next());
+            }
+            for (int n = fields.nextInt(); n > 0; n--) {
+                fb.addOuter(fields.next());
+            }
+            for (int n = fields.nextInt(); n > 0; n--) {
+                fb.addUnused(fields.next());
+            }
+            for (int n = fields.nextInt(); n > 0; n--) {
+                fb.addGlobal(fields.next());
+            }
+            for (int n = fields.nextInt(); n > 0; n--) {
+                fb.addLabel(fields.next());
+            }
+            b.addFunction(fb.build());
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.googlecode.jslint4java;
 
+import java.io.Serializable;
+
 import org.mozilla.javascript.Scriptable;
 
 /**
@@ -7,7 +9,9 @@ import org.mozilla.javascript.Scriptable;
  *
  * @author dom
  */
-public class Issue {
+public class Issue implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * Allow creating an issue in a couple of different ways.
@@ -1,5 +1,6 @@
 package com.googlecode.jslint4java;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,7 +11,9 @@ import java.util.List;
  * @author hdm
  *
  */
-public class JSFunction {
+public class JSFunction implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * Allow construction of an immutable {@link JSFunction} from outside of this package.
@@ -1,12 +1,16 @@
 package com.googlecode.jslint4java;
 
+import java.io.Serializable;
+
 /**
  * A JavaScript identifer, and it's location.
  *
  * @author hdm
  *
  */
-public class JSIdentifier {
+public class JSIdentifier implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final int line;
     private final String name;
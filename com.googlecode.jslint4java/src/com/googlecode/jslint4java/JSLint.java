@@ -3,6 +3,7 @@ package com.googlecode.jslint4java;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
@@ -102,6 +103,23 @@ public class JSLint {
 
     private final ContextFactory contextFactory;
 
+    /** Whether to call {@code JSLINT.report()} and {@code JSLINT.data()} after each lint. */
+    private boolean collectReports = true;
+
+    /** Whether to use {@link BulkExtractor}. */
+    private boolean bulkExtraction = true;
+
+    /** Created on first use. */
+    private BulkExtractor bulkExtractor;
+
+    private JSLintMetricsListener metricsListener;
+
+    /** Time spent in {@link #optionsAsJavaScriptObject()} during the current lint. */
+    private long optionsNanos;
+
+    /** Time spent converting JavaScript results to Java during the current lint. */
+    private long conversionNanos;
+
     /**
      * Create a new {@link JSLint} object. You must pass in a {@link Scriptable}
      * which already has the {@code JSLINT} function defined.
@@ -147,8 +165,24 @@ public class JSLint {
             public Object run(Context cx) {
                 ResultBuilder b = new JSLintResult.ResultBuilder(systemId);
                 b.duration(TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos));
-                for (Issue issue : readErrors(systemId)) {
-                    b.addIssue(issue);
+                if (!bulkExtraction) {
+                    long before = System.nanoTime();
+                    for (Issue issue : readErrors(systemId)) {
+                        b.addIssue(issue);
+                    }
+                    conversionNanos += System.nanoTime() - before;
+                }
+
+                if (!collectReports) {
+                    // Just the issues, skipping the (expensive) report phase entirely.
+                    if (bulkExtraction) {
+                        long before = System.nanoTime();
+                        Scriptable lintScope = (Scriptable) scope.get("JSLINT", scope);
+                        getBulkExtractor(cx).extract(cx, scope, systemId,
+                                lintScope.get("errors", lintScope), Context.getUndefinedValue(), b);
+                        conversionNanos += System.nanoTime() - before;
+                    }
+                    return b.build();
                 }
 
                 // Collect a report on what we've just linted.
@@ -157,11 +191,23 @@ public class JSLint {
                 // Extract JSLINT.data() output and set it on the result.
                 Scriptable lintScope = (Scriptable) scope.get("JSLINT", scope);
                 Object o = lintScope.get("data", lintScope);
+                Scriptable data = null;
                 // Real JSLINT will always have this, but some of my test stubs don't.
                 if (o != UniqueTag.NOT_FOUND) {
                     Function reportFunc = (Function) o;
-                    Scriptable data = (Scriptable) reportFunc.call(cx, scope,
-                            scope, new Object[] {});
+                    data = (Scriptable) reportFunc.call(cx, scope, scope, new Object[] {});
+                }
+                if (bulkExtraction) {
+                    Object functions = data == null ? null : data.get("functions", data);
+                    if (functions == null || functions == UniqueTag.NOT_FOUND) {
+                        functions = Context.getUndefinedValue();
+                    }
+                    long before = System.nanoTime();
+                    getBulkExtractor(cx).extract(cx, scope, systemId,
+                            lintScope.get("errors", lintScope), functions, b);
+                    conversionNanos += System.nanoTime() - before;
+                }
+                if (data != null) {
                     for (String global : Util.listValueOfType("globals", String.class, data)) {
                         b.addGlobal(global);
                     }
@@ -178,8 +224,12 @@ public class JSLint {
                         b.addImplied(id);
                     }
                     b.json(Util.booleanValue("json", data));
-                    for (JSFunction f : Util.listValue("functions", data, new JSFunctionConverter())) {
-                        b.addFunction(f);
+                    if (!bulkExtraction) {
+                        long before = System.nanoTime();
+                        for (JSFunction f : Util.listValue("functions", data, new JSFunctionConverter())) {
+                            b.addFunction(f);
+                        }
+                        conversionNanos += System.nanoTime() - before;
                     }
                 }
                 return b.build();
@@ -219,6 +269,16 @@ public class JSLint {
         });
     }
 
+    /**
+     * Return the {@link BulkExtractor}, compiling it if necessary.
+     */
+    private BulkExtractor getBulkExtractor(Context cx) {
+        if (bulkExtractor == null) {
+            bulkExtractor = new BulkExtractor(cx, scope);
+        }
+        return bulkExtractor;
+    }
+
     /**
      * Set the "member" field of the {@link JSLintResult}.
      */
@@ -245,6 +305,46 @@ public class JSLint {
         return (String) lintScope.get("edition", lintScope);
     }
 
+    /**
+     * Return a string identifying the edition of jslint in use, the options which have been set
+     * and whether reports are being collected. Two instances with the same fingerprint produce
+     * the same result for the same input.
+     */
+    public String getFingerprint() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getEdition());
+        sb.append(';');
+        sb.append(collectReports ? "reports" : "issues");
+        sb.append(';');
+        // An EnumMap iterates in a fixed order, so this is stable.
+        for (Entry<Option, Object> entry : options.entrySet()) {
+            sb.append(entry.getKey().getLowerName());
+            sb.append('=');
+            Object value = entry.getValue();
+            if (value instanceof Object[]) {
+                sb.append(Arrays.toString((Object[]) value));
+            } else {
+                sb.append(value);
+            }
+            sb.append(';');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return a copy of the options which have been set, along with their values.
+     */
+    public Map<Option, Object> getOptions() {
+        return new EnumMap<Option, Object>(options);
+    }
+
+    /**
+     * Are reports being collected? See {@link #setCollectReports(boolean)}.
+     */
+    public boolean isCollectingReports() {
+        return collectReports;
+    }
+
     /**
      * Check for problems in a {@link Reader} which contains JavaScript source.
      *
@@ -270,10 +370,19 @@ public class JSLint {
      * @return a {@link JSLintResult}.
      */
     public JSLintResult lint(String systemId, String javaScript) {
+        optionsNanos = 0;
+        conversionNanos = 0;
         long before = System.nanoTime();
         doLint(javaScript);
         long after = System.nanoTime();
-        return buildResults(systemId, before, after);
+        JSLintResult result = buildResults(systemId, before, after);
+        if (metricsListener != null) {
+            long built = System.nanoTime();
+            metricsListener.lintCompleted(new JSLintMetrics(systemId,
+                    javaScript == null ? 0 : javaScript.length(), result.getIssues().size(),
+                    optionsNanos, after - before - optionsNanos, built - after, conversionNanos));
+        }
+        return result;
     }
 
     /**
@@ -284,6 +393,7 @@ public class JSLint {
     private Scriptable optionsAsJavaScriptObject() {
         return (Scriptable) contextFactory.call(new ContextAction() {
             public Object run(Context cx) {
+                long before = System.nanoTime();
                 Scriptable opts = cx.newObject(scope);
                 for (Entry<Option, Object> entry : options.entrySet()) {
                     String key = entry.getKey().getLowerName();
@@ -291,6 +401,7 @@ public class JSLint {
                     Object value = Util.javaToJS(entry.getValue(), opts);
                     opts.put(key, opts, value);
                 }
+                optionsNanos += System.nanoTime() - before;
                 return opts;
             }
         });
@@ -344,4 +455,33 @@ public class JSLint {
     public void resetOptions() {
         options.clear();
     }
+
+    /**
+     * Choose whether each {@link JSLintResult} includes JSLint's reports: the HTML report, the
+     * functions, globals, members, implied and unused names and so on. These are on by default.
+     * If only {@link JSLintResult#getIssues()} is needed, turning them off skips the whole
+     * report-building phase; the other properties will then be empty (or null, for the HTML
+     * report).
+     */
+    public void setCollectReports(boolean collectReports) {
+        this.collectReports = collectReports;
+    }
+
+    /**
+     * Set a listener to be told how long each phase of every subsequent lint took. Pass null to
+     * stop collecting metrics.
+     */
+    public void setMetricsListener(JSLintMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Choose how issues and functions are read back from JSLINT. By default, they are packed up
+     * by a single call into JavaScript and decoded in one pass. Passing false reads each field
+     * individually instead, which is slower when there are many. This is mostly useful for
+     * benchmarking.
+     */
+    public void setBulkExtraction(boolean bulkExtraction) {
+        this.bulkExtraction = bulkExtraction;
+    }
 }
@@ -10,6 +10,7 @@ import java.nio.charset.Charset;
 
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.ScriptableObject;
 
 /**
@@ -18,9 +19,29 @@ import org.mozilla.javascript.ScriptableObject;
  * @author hdm
  */
 public class JSLintBuilder {
+
+    /**
+     * A {@link ContextFactory} which compiles at a chosen optimization level.
+     */
+    private static final class JSLintContextFactory extends ContextFactory {
+        private volatile int optimizationLevel = 0;
+
+        @Override
+        protected void onContextCreated(Context cx) {
+            super.onContextCreated(cx);
+            cx.setOptimizationLevel(optimizationLevel);
+        }
+    }
+
+    /**
+     * The name of the class produced by compiling {@link #JSLINT_FILE} ahead of time. See
+     * {@code build-jsc.xml}.
+     */
+    private static final String COMPILED_JSLINT = "com.googlecode.jslint4java.FullJSLint";
+
     private static final String JSLINT_FILE = "com/googlecode/jslint4java/fulljslint.js";
 
-    private final ContextFactory contextFactory = new ContextFactory();
+    private final JSLintContextFactory contextFactory = new JSLintContextFactory();
 
     private final Charset utf8 = Charset.forName("UTF-8");
 
@@ -55,13 +76,18 @@ public class JSLintBuilder {
     }
 
     /**
-     * Initialize the scope with a default jslint.js.
+     * Initialize the scope with a default jslint.js. If a precompiled version is available on the
+     * classpath, that is used in preference to interpreting the source.
      *
      * @return a configured {@link JSLint}
      * @throws RuntimeException
      *             if we fail to load the default jslint.js.
      */
     public JSLint fromDefault() {
+        Script compiled = loadCompiledScript();
+        if (compiled != null) {
+            return fromScript(compiled);
+        }
         try {
             return fromClasspathResource(JSLINT_FILE);
         } catch (IOException e) {
@@ -123,4 +149,119 @@ public class JSLintBuilder {
             Context.exit();
         }
     }
+
+    /**
+     * Initialize the scope with an already compiled jslint, such as one produced by Rhino's
+     * {@code jsc}.
+     *
+     * @param script
+     *            a compiled jslint.js.
+     * @return a configured {@link JSLint}
+     */
+    @NeedsContext
+    public JSLint fromScript(Script script) {
+        try {
+            Context cx = contextFactory.enterContext();
+            ScriptableObject scope = cx.initStandardObjects();
+            script.exec(cx, scope);
+            return new JSLint(contextFactory, scope);
+        } finally {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Return an instance of the precompiled jslint.js, or null if it isn't available.
+     */
+    private Script loadCompiledScript() {
+        try {
+            Class<?> cls = Class.forName(COMPILED_JSLINT, true, getClass().getClassLoader());
+            return (Script) cls.newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (InstantiationException e) {
+            throw new RuntimeException(e);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Set the Rhino optimization level used when compiling jslint.js from source. -1 means
+     * interpret it; 0 to 9 generate bytecode. This has no effect on a precompiled jslint.js,
+     * whose level was chosen when it was built.
+     *
+     * @param level
+     *            an optimization level between -1 and 9.
+     * @return this builder.
+     */
+    public JSLintBuilder optimizationLevel(int level) {
+        if (!Context.isValidOptimizationLevel(level)) {
+            throw new IllegalArgumentException("invalid optimization level: " + level);
+        }
+        contextFactory.optimizationLevel = level;
+        return this;
+    }
+
+    /**
+     * Create a {@link JSLintPool} using the default jslint.js.
+     *
+     * @param size
+     *            the maximum number of {@link JSLint} instances in the pool.
+     * @return a {@link JSLintPool}
+     * @throws RuntimeException
+     *             if we fail to load the default jslint.js.
+     */
+    public JSLintPool poolFromDefault(int size) {
+        Script compiled = loadCompiledScript();
+        if (compiled != null) {
+            return poolFromScript(compiled, size);
+        }
+        Reader reader = new BufferedReader(new InputStreamReader(getClass().getClassLoader()
+                .getResourceAsStream(JSLINT_FILE), utf8));
+        try {
+            return poolFromReader(reader, JSLINT_FILE, size);
+        } catch (IOException e) {
+            // We wrap and rethrow, as there's nothing a caller can do in this
+            // case.
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Create a {@link JSLintPool} from an arbitrary jslint. The source is compiled once, and run
+     * in a scope of its own for each instance.
+     *
+     * @param reader
+     *            an input source providing jslint.js.
+     * @param name
+     *            the name of the resource backed by the reader
+     * @param size
+     *            the maximum number of {@link JSLint} instances in the pool.
+     * @return a {@link JSLintPool}
+     * @throws IOException
+     *             if there are any problems reading from {@code reader} .
+     */
+    @NeedsContext
+    public JSLintPool poolFromReader(Reader reader, String name, int size) throws IOException {
+        try {
+            Context cx = contextFactory.enterContext();
+            return poolFromScript(cx.compileReader(reader, name, 1, null), size);
+        } finally {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Create a {@link JSLintPool} from an already compiled jslint.
+     *
+     * @param script
+     *            a compiled jslint.js.
+     * @param size
+     *            the maximum number of {@link JSLint} instances in the pool.
+     * @return a {@link JSLintPool}
+     */
+    public JSLintPool poolFromScript(Script script, int size) {
+        return new JSLintPool(contextFactory, script, size);
+    }
 }
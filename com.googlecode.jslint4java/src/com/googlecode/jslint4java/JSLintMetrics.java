@@ -0,0 +1,90 @@
+package com.googlecode.jslint4java;
+
+import java.util.Locale;
+
+/**
+ * Timings and sizes for a single call to {@link JSLint#lint(String, String)}.
+ *
+ * @see JSLintMetricsListener
+ */
+public class JSLintMetrics {
+
+    /**
+     * The phases of a lint which are timed separately.
+     */
+    public enum Phase {
+        /** Turning the options into a JavaScript object. */
+        OPTIONS,
+        /** Running {@code JSLINT} itself (excluding {@link #OPTIONS}). */
+        LINT,
+        /** Assembling the {@link JSLintResult}, including {@link #CONVERSION}. */
+        RESULTS,
+        /** Converting the JavaScript issues (and, with bulk extraction, functions) to Java. */
+        CONVERSION,
+        /** The whole lint. */
+        TOTAL;
+
+        /**
+         * Return the lowercase name of this phase.
+         */
+        public String getLowerName() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    private final long conversionNanos;
+    private final int issueCount;
+    private final long lintNanos;
+    private final long optionsNanos;
+    private final long resultsNanos;
+    private final int sourceLength;
+    private final String systemId;
+
+    public JSLintMetrics(String systemId, int sourceLength, int issueCount, long optionsNanos,
+            long lintNanos, long resultsNanos, long conversionNanos) {
+        this.systemId = systemId;
+        this.sourceLength = sourceLength;
+        this.issueCount = issueCount;
+        this.optionsNanos = optionsNanos;
+        this.lintNanos = lintNanos;
+        this.resultsNanos = resultsNanos;
+        this.conversionNanos = conversionNanos;
+    }
+
+    /** How many issues were found. */
+    public int getIssueCount() {
+        return issueCount;
+    }
+
+    /** How long a phase took, in nanoseconds. */
+    public long getNanos(Phase phase) {
+        switch (phase) {
+        case OPTIONS:
+            return optionsNanos;
+        case LINT:
+            return lintNanos;
+        case RESULTS:
+            return resultsNanos;
+        case CONVERSION:
+            return conversionNanos;
+        default:
+            return optionsNanos + lintNanos + resultsNanos;
+        }
+    }
+
+    /** The length of the source, in characters. */
+    public int getSourceLength() {
+        return sourceLength;
+    }
+
+    /** The name of the file that was linted. */
+    public String getSystemId() {
+        return systemId;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d chars, %d issues, %d ns", systemId, sourceLength, issueCount,
+                getNanos(Phase.TOTAL));
+    }
+}
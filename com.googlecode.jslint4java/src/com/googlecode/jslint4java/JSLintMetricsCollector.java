@@ -0,0 +1,152 @@
+package com.googlecode.jslint4java;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.googlecode.jslint4java.JSLintMetrics.Phase;
+
+/**
+ * A {@link JSLintMetricsListener} which keeps every {@link JSLintMetrics} it is given, and can
+ * summarize them: percentiles per phase, and the slowest files. This is thread safe, so one
+ * collector may be shared by several {@link JSLint} instances.
+ */
+public class JSLintMetricsCollector implements JSLintMetricsListener {
+
+    private final List<JSLintMetrics> metrics = new ArrayList<JSLintMetrics>();
+
+    /** Forget everything collected so far. */
+    public synchronized void clear() {
+        metrics.clear();
+    }
+
+    /** Return a copy of everything collected so far. */
+    public synchronized List<JSLintMetrics> getMetrics() {
+        return new ArrayList<JSLintMetrics>(metrics);
+    }
+
+    public synchronized void lintCompleted(JSLintMetrics m) {
+        metrics.add(m);
+    }
+
+    /**
+     * Return the <i>percentile</i>th (0-100) duration of <i>phase</i> across all files, in
+     * nanoseconds, using the nearest-rank method. Returns zero if nothing has been collected.
+     */
+    public long percentile(Phase phase, double percentile) {
+        return percentile(sortedNanos(getMetrics(), phase), percentile);
+    }
+
+    /**
+     * Return the <i>count</i> slowest files, slowest first.
+     */
+    public List<JSLintMetrics> slowest(int count) {
+        List<JSLintMetrics> all = getMetrics();
+        Collections.sort(all, new Comparator<JSLintMetrics>() {
+            public int compare(JSLintMetrics a, JSLintMetrics b) {
+                long x = a.getNanos(Phase.TOTAL);
+                long y = b.getNanos(Phase.TOTAL);
+                return x < y ? 1 : (x == y ? 0 : -1);
+            }
+        });
+        return all.subList(0, Math.min(count, all.size()));
+    }
+
+    /**
+     * Write one line per file, as comma separated values with a header line. Durations are in
+     * nanoseconds.
+     */
+    public void writeCsv(PrintWriter out) {
+        out.print("file,chars,issues");
+        for (Phase phase : Phase.values()) {
+            out.print(',');
+            out.print(phase.getLowerName());
+        }
+        out.println();
+        for (JSLintMetrics m : getMetrics()) {
+            out.print(csvEscape(m.getSystemId()));
+            out.print(',');
+            out.print(m.getSourceLength());
+            out.print(',');
+            out.print(m.getIssueCount());
+            for (Phase phase : Phase.values()) {
+                out.print(',');
+                out.print(m.getNanos(phase));
+            }
+            out.println();
+        }
+        out.flush();
+    }
+
+    /**
+     * Write a human readable summary: totals, p50/p99/max for each phase, and the <i>slowest</i>
+     * slowest files.
+     */
+    public void writeSummary(PrintWriter out, int slowest) {
+        List<JSLintMetrics> all = getMetrics();
+        long chars = 0;
+        long issues = 0;
+        for (JSLintMetrics m : all) {
+            chars += m.getSourceLength();
+            issues += m.getIssueCount();
+        }
+        out.println(String.format("%d files, %d chars, %d issues", all.size(), chars, issues));
+        out.println(String.format("%-12s %10s %10s %10s %10s", "phase (ms)", "p50", "p99", "max",
+                "total"));
+        for (Phase phase : Phase.values()) {
+            long[] nanos = sortedNanos(all, phase);
+            long total = 0;
+            for (long n : nanos) {
+                total += n;
+            }
+            out.println(String.format("%-12s %10.2f %10.2f %10.2f %10.2f", phase.getLowerName(),
+                    millis(percentile(nanos, 50)), millis(percentile(nanos, 99)),
+                    millis(percentile(nanos, 100)), millis(total)));
+        }
+        List<JSLintMetrics> slow = slowest(slowest);
+        if (!slow.isEmpty()) {
+            out.println("slowest files:");
+            for (JSLintMetrics m : slow) {
+                out.println(String.format("%10.2f ms  %s (%d chars, %d issues)",
+                        millis(m.getNanos(Phase.TOTAL)), m.getSystemId(), m.getSourceLength(),
+                        m.getIssueCount()));
+            }
+        }
+        out.flush();
+    }
+
+    private String csvEscape(String str) {
+        if (str == null) {
+            return "";
+        }
+        if (str.indexOf(',') == -1 && str.indexOf('"') == -1 && str.indexOf('\n') == -1) {
+            return str;
+        }
+        return '"' + str.replace("\"", "\"\"") + '"';
+    }
+
+    private double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private long[] sortedNanos(List<JSLintMetrics> all, Phase phase) {
+        long[] nanos = new long[all.size()];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = all.get(i).getNanos(phase);
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+}
@@ -0,0 +1,17 @@
+package com.googlecode.jslint4java;
+
+/**
+ * Receives {@link JSLintMetrics} after each lint.
+ *
+ * @see JSLint#setMetricsListener(JSLintMetricsListener)
+ * @see JSLintMetricsCollector
+ */
+public interface JSLintMetricsListener {
+
+    /**
+     * Called once {@link JSLint} has produced a result. This is called on the linting thread,
+     * so implementations shared between several {@link JSLint} instances must be thread safe.
+     */
+    void lintCompleted(JSLintMetrics metrics);
+
+}
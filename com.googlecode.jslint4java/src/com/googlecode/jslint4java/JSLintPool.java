@@ -0,0 +1,143 @@
+package com.googlecode.jslint4java;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.ScriptableObject;
+
+/**
+ * A bounded pool of {@link JSLint} instances which may be used from several threads at once.
+ *
+ * <p>
+ * jslint.js is compiled exactly once. Each {@link JSLint} handed out by the pool runs that
+ * compiled script in a scope of its own, with its own standard objects. They can't be shared:
+ * jslint adds to them, for instance its {@code Object.create}, which closes over state of the
+ * instance that added it, so instances sharing them would interfere with each other's lints.
+ *
+ * <p>
+ * A {@link JSLint} instance is still not thread safe. Each thread should {@link #borrow()} its
+ * own, and {@link #release(JSLint)} it when done.
+ *
+ * @see JSLintBuilder#poolFromDefault(int)
+ */
+public class JSLintPool {
+
+    /**
+     * How often a thread waiting for an instance checks whether it may create one instead, in
+     * case a creation by another thread failed and gave up its slot.
+     */
+    private static final long RETRY_MILLIS = 100;
+
+    private final ContextFactory contextFactory;
+
+    private final BlockingQueue<JSLint> idle;
+
+    private final Script script;
+
+    private final int size;
+
+    /** How many instances have been created so far. Guarded by {@code this}. */
+    private int created = 0;
+
+    /**
+     * Create a new pool of instances of the compiled jslint <i>script</i>.
+     */
+    JSLintPool(ContextFactory contextFactory, Script script, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("pool size must be at least 1");
+        }
+        this.contextFactory = contextFactory;
+        this.script = script;
+        this.size = size;
+        this.idle = new LinkedBlockingQueue<JSLint>(size);
+    }
+
+    /**
+     * Take an instance of {@link JSLint} from the pool, creating one if needed. If all instances
+     * are in use, wait for one to be released.
+     *
+     * @return a {@link JSLint} with no options set.
+     * @throws InterruptedException
+     *             if interrupted while waiting for an instance.
+     */
+    public JSLint borrow() throws InterruptedException {
+        while (true) {
+            JSLint lint = idle.poll();
+            if (lint != null) {
+                return lint;
+            }
+            if (reserve()) {
+                // Run the script outside the lock, so other threads aren't held up.
+                boolean made = false;
+                try {
+                    lint = newInstance();
+                    made = true;
+                    return lint;
+                } finally {
+                    if (!made) {
+                        unreserve();
+                    }
+                }
+            }
+            lint = idle.poll(RETRY_MILLIS, TimeUnit.MILLISECONDS);
+            if (lint != null) {
+                return lint;
+            }
+        }
+    }
+
+    /**
+     * Claim a slot for a new instance, if the pool isn't full.
+     */
+    private synchronized boolean reserve() {
+        if (created < size) {
+            created++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Give up a slot claimed by {@link #reserve()}, because the instance couldn't be created.
+     */
+    private synchronized void unreserve() {
+        created--;
+    }
+
+    /** The maximum number of instances this pool will create. */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Create a new {@link JSLint} in a scope of its own.
+     */
+    @NeedsContext
+    private JSLint newInstance() {
+        try {
+            Context cx = contextFactory.enterContext();
+            ScriptableObject scope = cx.initStandardObjects();
+            script.exec(cx, scope);
+            return new JSLint(contextFactory, scope);
+        } finally {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Return an instance previously obtained from {@link #borrow()} to the pool. Any options set
+     * on it are cleared, and its reports, metrics listener and extraction are set back to their
+     * defaults, so that the next borrower gets it as new.
+     */
+    public void release(JSLint lint) {
+        lint.resetOptions();
+        lint.setCollectReports(true);
+        lint.setMetricsListener(null);
+        lint.setBulkExtraction(true);
+        idle.offer(lint);
+    }
+}
@@ -1,5 +1,6 @@
 package com.googlecode.jslint4java;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -8,10 +9,16 @@ import java.util.Map;
 /**
  * The result of a JSLint run.
  *
+ * <p>
+ * Everything other than the issues is only filled in if the {@link JSLint} was collecting
+ * reports. See {@link JSLint#setCollectReports(boolean)}.
+ *
  * @author hdm
  *
  */
-public class JSLintResult {
+public class JSLintResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * Allow constructing a result class in such a way that we can publish
@@ -0,0 +1,323 @@
+package com.googlecode.jslint4java;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A persistent cache of {@link JSLintResult}s, stored as one file per result in a directory.
+ *
+ * <p>
+ * Results are keyed by a hash of the source code, the name it was linted under, the edition of
+ * jslint in use and the options set on the {@link JSLint} (including whether it collects
+ * reports). So if any of those change, the file
+ * gets linted again. Otherwise the stored result is returned without running jslint at all.
+ *
+ * <p>
+ * The cache is bounded. Once it holds more than its maximum number of entries, the least
+ * recently used are removed; each entry's modification time is when it was last written or read.
+ * When a different edition of jslint is used, every entry is removed, as none could be used
+ * again. Entries for options which are no longer used just age out.
+ *
+ * <p>
+ * Instances may be shared between threads. Entries are written to a temporary file and then
+ * renamed into place, so readers never see a partial entry.
+ */
+public class JSLintResultCache {
+
+    /**
+     * Bump this to invalidate every existing entry when the stored format changes, or when
+     * stored results can't be trusted. Version 3: results from a {@link JSLintPool} before it
+     * could be wrong, as its instances interfered with each other.
+     */
+    private static final String FORMAT = "3";
+
+    private static final String SUFFIX = ".result";
+
+    /** The file which holds the edition of jslint that the entries are from. */
+    private static final String EDITION_FILE = "edition";
+
+    /** How many entries are kept by default. */
+    public static final int DEFAULT_MAX_ENTRIES = 2000;
+
+    /** How many entries are written between checks on the size of the cache. */
+    private static final int PRUNE_INTERVAL = 100;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File directory;
+
+    private final int maxEntries;
+
+    /** How many entries have been written. */
+    private final AtomicInteger puts = new AtomicInteger();
+
+    /** The edition of jslint the entries are known to be from, or null. Guarded by {@code this}. */
+    private String edition;
+
+    /**
+     * Create a cache storing up to {@link #DEFAULT_MAX_ENTRIES} results beneath
+     * <i>directory</i>, which will be created if necessary.
+     */
+    public JSLintResultCache(File directory) {
+        this(directory, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Create a cache storing up to <i>maxEntries</i> results beneath <i>directory</i>, which
+     * will be created if necessary.
+     */
+    public JSLintResultCache(File directory, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Remove every entry from the cache.
+     */
+    public void clear() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            if (f.getName().endsWith(SUFFIX)) {
+                f.delete();
+            }
+        }
+    }
+
+    /**
+     * Fetch a previously stored result.
+     *
+     * @param key
+     *            a key from {@link #key(JSLint, String, String)}.
+     * @return the result, or null if there isn't one (or it can't be read).
+     */
+    public JSLintResult get(String key) {
+        File f = fileFor(key);
+        if (!f.isFile()) {
+            return null;
+        }
+        ObjectInputStream in = null;
+        try {
+            in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(f)));
+            JSLintResult result = (JSLintResult) in.readObject();
+            // Recently used, so the last to be pruned.
+            f.setLastModified(System.currentTimeMillis());
+            return result;
+        } catch (InvalidClassException e) {
+            // Written by an incompatible version of this class.
+            f.delete();
+            return null;
+        } catch (ClassNotFoundException e) {
+            f.delete();
+            return null;
+        } catch (IOException e) {
+            // Truncated or otherwise corrupt. Treat it as a miss.
+            f.delete();
+            return null;
+        } finally {
+            close(in);
+        }
+    }
+
+    /**
+     * Calculate the key under which the result of linting <i>javaScript</i> with <i>lint</i>
+     * would be stored. If <i>lint</i> is a different edition of jslint from the one the entries
+     * are from, they are all removed first.
+     */
+    public String key(JSLint lint, String systemId, String javaScript) {
+        checkEdition(lint.getEdition());
+        MessageDigest md = newDigest();
+        update(md, FORMAT);
+        update(md, lint.getFingerprint());
+        update(md, systemId);
+        update(md, javaScript == null ? "" : javaScript);
+        return toHex(md.digest());
+    }
+
+    /**
+     * Return the cached result of linting <i>reader</i>, or lint it and store the result.
+     */
+    public JSLintResult lint(JSLint lint, String systemId, Reader reader) throws IOException {
+        return lint(lint, systemId, Util.readerToString(reader));
+    }
+
+    /**
+     * Return the cached result of linting <i>javaScript</i>, or lint it and store the result.
+     */
+    public JSLintResult lint(JSLint lint, String systemId, String javaScript) {
+        String key = key(lint, systemId, javaScript);
+        JSLintResult result = get(key);
+        if (result == null) {
+            result = lint.lint(systemId, javaScript);
+            put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Store a result. Failure to write is not an error; the result just won't be cached.
+     */
+    public void put(String key, JSLintResult result) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+        File tmp = null;
+        ObjectOutputStream out = null;
+        try {
+            tmp = File.createTempFile(key, ".tmp", directory);
+            out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            out.writeObject(result);
+            out.close();
+            out = null;
+            File f = fileFor(key);
+            if (!tmp.renameTo(f)) {
+                // Some platforms won't rename over an existing file.
+                f.delete();
+                tmp.renameTo(f);
+            }
+        } catch (IOException e) {
+            // Ignore; we'll just lint it again next time.
+        } finally {
+            close(out);
+            if (tmp != null && tmp.exists()) {
+                tmp.delete();
+            }
+        }
+        // Check on the first write too, in case the cache was left too big.
+        if (puts.getAndIncrement() % PRUNE_INTERVAL == 0) {
+            prune();
+        }
+    }
+
+    /**
+     * Remove the least recently used entries, until there are no more than the maximum.
+     */
+    public void prune() {
+        File[] files = directory.listFiles();
+        if (files == null || files.length <= maxEntries) {
+            return;
+        }
+        // Read each time once, as they change when entries are used during the sort.
+        final Map<File, Long> times = new HashMap<File, Long>();
+        List<File> entries = new ArrayList<File>(files.length);
+        for (File f : files) {
+            if (f.getName().endsWith(SUFFIX)) {
+                entries.add(f);
+                times.put(f, f.lastModified());
+            }
+        }
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        Collections.sort(entries, new Comparator<File>() {
+            public int compare(File a, File b) {
+                long diff = times.get(b) - times.get(a);
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (int i = maxEntries; i < entries.size(); i++) {
+            entries.get(i).delete();
+        }
+    }
+
+    /**
+     * Remove every entry if they are from an edition of jslint other than <i>current</i>.
+     */
+    private synchronized void checkEdition(String current) {
+        if (current == null || current.equals(edition)) {
+            return;
+        }
+        File f = new File(directory, EDITION_FILE);
+        String stored = null;
+        try {
+            stored = Util.readerToString(new InputStreamReader(new FileInputStream(f), "UTF-8"));
+        } catch (IOException e) {
+            // No entries yet, or not from a version of this class which noted the edition.
+        }
+        if (!current.equals(stored)) {
+            clear();
+            if (directory.isDirectory() || directory.mkdirs()) {
+                Writer w = null;
+                try {
+                    w = new OutputStreamWriter(new FileOutputStream(f), "UTF-8");
+                    w.write(current);
+                } catch (IOException e) {
+                    // We'll try again next time.
+                } finally {
+                    close(w);
+                }
+            }
+        }
+        edition = current;
+    }
+
+    private void close(Closeable c) {
+        if (c == null) {
+            return;
+        }
+        try {
+            c.close();
+        } catch (IOException e) {
+        }
+    }
+
+    private File fileFor(String key) {
+        return new File(directory, key + SUFFIX);
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to provide SHA-1.
+            throw new RuntimeException(e);
+        }
+    }
+
+    private String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    private void update(MessageDigest md, String str) {
+        try {
+            md.update(str.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            // Every JVM is required to support UTF-8.
+            throw new RuntimeException(e);
+        }
+        // Separate fields, so that ("ab", "c") and ("a", "bc") differ.
+        md.update((byte) 0);
+    }
+}
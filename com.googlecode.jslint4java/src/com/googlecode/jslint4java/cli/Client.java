@@ -0,0 +1,164 @@
+package com.googlecode.jslint4java.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A thin command line client for a {@link LintServer}. It takes exactly the same arguments as
+ * {@link Main}, optionally preceded by "--port <i>port</i>", and sends them to a server started
+ * with "--server". If no server is running, or the arguments include an option a server refuses
+ * (--jslint, --cache or --stats-csv), the files are linted in this process instead, so this can
+ * always be used in place of {@link Main}.
+ *
+ * <p>
+ * This class deliberately avoids loading jslint, so that it starts quickly.
+ */
+class Client {
+
+    /** How long to wait for a server to accept our connection, in milliseconds. */
+    private static final int CONNECT_TIMEOUT = 1000;
+
+    public static void main(String[] args) throws IOException {
+        int port = LintServer.DEFAULT_PORT;
+        if (args.length >= 2 && args[0].equals("--port")) {
+            port = Integer.parseInt(args[1]);
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        if (!canSend(args)) {
+            Main.main(args);
+            return;
+        }
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(LintServer.loopback(), port), CONNECT_TIMEOUT);
+        } catch (ConnectException e) {
+            // Nobody listening; do it ourselves.
+            socket.close();
+            Main.main(args);
+            return;
+        } catch (SocketTimeoutException e) {
+            // Nobody answering; do it ourselves.
+            socket.close();
+            Main.main(args);
+            return;
+        }
+        try {
+            sendRequest(socket, args);
+            System.exit(readResponse(socket));
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Whether a server will take <i>args</i>. It refuses the options which would let a request
+     * run code or write files.
+     */
+    private static boolean canSend(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--jslint") || arg.equals("--cache") || arg.equals("--stats-csv")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Work out what encoding our standard input is in, the same way that {@link Main} would.
+     */
+    private static Charset inputEncoding(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--encoding")) {
+                return Charset.forName(args[i + 1]);
+            }
+        }
+        return Charset.defaultCharset();
+    }
+
+    /**
+     * Copy the server's output to ours, returning the exit status it sent.
+     */
+    private static int readResponse(Socket socket) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                LintServer.UTF8));
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.length() < 2) {
+                continue;
+            }
+            String text = line.substring(2);
+            switch (line.charAt(0)) {
+            case 'o':
+                System.out.print(text);
+                System.out.print('\n');
+                break;
+            case 'O':
+                System.out.print(text);
+                break;
+            case 'e':
+                System.err.print(text);
+                System.err.print('\n');
+                break;
+            case 'E':
+                System.err.print(text);
+                break;
+            case 'x':
+                System.out.flush();
+                System.err.flush();
+                return Integer.parseInt(text);
+            default:
+                break;
+            }
+        }
+        System.out.flush();
+        System.err.println(Main.PROGNAME + ": lost connection to server");
+        return 1;
+    }
+
+    private static String readAll(Reader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[8192];
+        int n;
+        while ((n = reader.read(buf)) != -1) {
+            sb.append(buf, 0, n);
+        }
+        return sb.toString();
+    }
+
+    private static void sendRequest(Socket socket, String[] args) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                LintServer.UTF8));
+        out.write(LintServer.HEADER + "\n");
+        out.write("dir " + new File("").getAbsolutePath() + "\n");
+        boolean stdin = false;
+        for (String arg : args) {
+            out.write("arg " + arg + "\n");
+            stdin |= arg.equals("-");
+        }
+        if (stdin) {
+            Reader reader = new InputStreamReader(System.in, inputEncoding(args));
+            String content = readAll(reader);
+            out.write("stdin " + content.length() + "\n");
+            out.write(content);
+            out.write("\n");
+        }
+        out.write("end\n");
+        out.flush();
+    }
+
+    private Client() {
+        // Use main().
+    }
+}
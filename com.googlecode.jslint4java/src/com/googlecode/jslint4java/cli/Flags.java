@@ -13,6 +13,9 @@ import com.beust.jcommander.Parameter;
  */
 class Flags {
 
+    @Parameter(names = "--cache", description = "Keep results in this directory, and skip unchanged files")
+    public String cache;
+
     @Parameter(names = "--encoding", description = "Specify the input encoding", converter = CharsetConverter.class)
     public Charset encoding;
 
@@ -22,6 +25,21 @@ class Flags {
     @Parameter(names = "--help", description = "Display usage information")
     public boolean help;
 
+    @Parameter(names = "--server", description = "Stay running, and lint files sent by jslint4java clients to this local port")
+    public Integer server;
+
+    @Parameter(names = "--stats", description = "Print timing statistics to stderr when done")
+    public boolean stats;
+
+    @Parameter(names = "--stats-csv", description = "Write per-file timings to this file as CSV")
+    public String statsCsv;
+
+    @Parameter(names = "--stdin-name", description = "The file name to report when linting standard input (given as \"-\")")
+    public String stdinName;
+
+    @Parameter(names = "--threads", description = "Number of files to lint in parallel, or requests to serve at once with --server (default is 1)")
+    public int threads = 1;
+
     @Parameter(names = "--report", description = "Display report in different formats: plain, xml, junit and report")
     public String report;
 
@@ -0,0 +1,259 @@
+package com.googlecode.jslint4java.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.googlecode.jslint4java.JSLint;
+import com.googlecode.jslint4java.JSLintPool;
+
+/**
+ * Keeps a pool of {@link JSLint} instances warm, and lints on behalf of a {@link Client}. This
+ * saves paying for jslint's startup on every run, which is most of the cost of linting a handful
+ * of files.
+ *
+ * <p>
+ * The server only listens on the loopback interface. Each connection carries one request, in
+ * UTF-8 lines:
+ *
+ * <pre>
+ * jslint4java 1
+ * dir /the/client/working/directory
+ * arg --white
+ * arg foo.js
+ * stdin 42
+ * ...exactly 42 characters of standard input, then a newline...
+ * end
+ * </pre>
+ *
+ * The "dir" and "stdin" lines are optional. The arguments are exactly those which would be given
+ * to {@link Main}, except that --jslint, --cache and --stats-csv are refused: any local user may
+ * send a request, and these would let it run code or write files as the server's user. The response is also in UTF-8 lines, each starting with a tag: "o" for a line of
+ * standard output, "e" for a line of standard error, "O" or "E" for a final line with no newline,
+ * and finally "x" followed by the exit status.
+ */
+class LintServer {
+
+    /**
+     * An {@link OutputStream} which sends each complete line to a shared response, tagged with the
+     * stream it came from.
+     */
+    private static final class TaggedOutputStream extends OutputStream {
+
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private final OutputStream response;
+        private final char tag;
+
+        TaggedOutputStream(OutputStream response, char tag) {
+            this.response = response;
+            this.tag = tag;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (line.size() > 0) {
+                // A partial last line.
+                send(Character.toUpperCase(tag));
+                response.write('\n');
+            }
+            flush();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (response) {
+                response.flush();
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (b == '\n') {
+                send(tag);
+                response.write('\n');
+            } else {
+                line.write(b);
+            }
+        }
+
+        /**
+         * Write the current line, with <i>prefix</i>.
+         */
+        private void send(char prefix) throws IOException {
+            synchronized (response) {
+                response.write(prefix);
+                response.write(' ');
+                line.writeTo(response);
+            }
+            line.reset();
+        }
+    }
+
+    /**
+     * Lint a single request.
+     */
+    private final class Worker implements Runnable {
+        private final Socket socket;
+
+        Worker(Socket socket) {
+            this.socket = socket;
+        }
+
+        public void run() {
+            try {
+                try {
+                    serve(socket);
+                } finally {
+                    socket.close();
+                }
+            } catch (IOException e) {
+                log("request failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /** The port that {@link Client} tries first. */
+    static final int DEFAULT_PORT = 8484;
+
+    /** The first line of each request. */
+    static final String HEADER = "jslint4java 1";
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The address we listen on. Only local clients should be able to make us read files.
+     */
+    static InetAddress loopback() throws IOException {
+        return InetAddress.getByName("127.0.0.1");
+    }
+
+    private final PrintStream log;
+
+    private final JSLintPool pool;
+
+    private final int port;
+
+    /**
+     * Create a new server which will listen on <i>port</i>, linting with instances from
+     * <i>pool</i>. At most as many requests as <i>pool</i> has instances will be linted at once.
+     */
+    LintServer(int port, JSLintPool pool, PrintStream log) {
+        this.port = port;
+        this.pool = pool;
+        this.log = log;
+    }
+
+    /**
+     * Accept requests until the process is killed.
+     */
+    void serve() throws IOException {
+        ServerSocket server = new ServerSocket(port, 50, loopback());
+        ExecutorService executor = Executors.newFixedThreadPool(pool.getSize());
+        log("listening on " + server.getInetAddress().getHostAddress() + ":"
+                + server.getLocalPort());
+        try {
+            while (true) {
+                executor.execute(new Worker(server.accept()));
+            }
+        } finally {
+            executor.shutdownNow();
+            server.close();
+        }
+    }
+
+    private void log(String message) {
+        synchronized (log) {
+            log.println(Main.PROGNAME + ": " + message);
+        }
+    }
+
+    /**
+     * Read exactly <i>count</i> characters.
+     */
+    private String readFully(BufferedReader in, int count) throws IOException {
+        char[] buf = new char[count];
+        int off = 0;
+        while (off < count) {
+            int n = in.read(buf, off, count - off);
+            if (n == -1) {
+                throw new IOException("truncated request");
+            }
+            off += n;
+        }
+        return new String(buf);
+    }
+
+    private void serve(Socket socket) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF8));
+        OutputStream response = new BufferedOutputStream(socket.getOutputStream());
+        PrintStream out = new PrintStream(new TaggedOutputStream(response, 'o'), false, UTF8.name());
+        PrintStream err = new PrintStream(new TaggedOutputStream(response, 'e'), false, UTF8.name());
+        if (!HEADER.equals(in.readLine())) {
+            err.println(Main.PROGNAME + ": unknown request");
+            finish(response, out, err, 1);
+            return;
+        }
+        List<String> args = new ArrayList<String>();
+        File directory = null;
+        String stdin = null;
+        String line;
+        while ((line = in.readLine()) != null && !line.equals("end")) {
+            if (line.startsWith("arg ")) {
+                args.add(line.substring(4));
+            } else if (line.startsWith("dir ")) {
+                directory = new File(line.substring(4));
+            } else if (line.startsWith("stdin ")) {
+                int count = Integer.parseInt(line.substring(6));
+                stdin = readFully(in, count);
+                // The newline which ends the content.
+                in.readLine();
+            } else {
+                throw new IOException("bad request line: " + line);
+            }
+        }
+        if (line == null) {
+            throw new IOException("truncated request");
+        }
+        JSLint lint;
+        try {
+            lint = pool.borrow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        int code;
+        try {
+            Main main = new Main(lint, out, err, UTF8);
+            main.serveRequest(directory, stdin);
+            code = main.execute(args.toArray(new String[args.size()]));
+        } catch (RuntimeException e) {
+            // Don't let one bad file take the server down.
+            err.println(Main.PROGNAME + ": " + e);
+            code = 1;
+        } finally {
+            pool.release(lint);
+        }
+        finish(response, out, err, code);
+    }
+
+    private void finish(OutputStream response, PrintStream out, PrintStream err, int code)
+            throws IOException {
+        out.close();
+        err.close();
+        response.write(("x " + code + "\n").getBytes(UTF8.name()));
+        response.flush();
+    }
+}
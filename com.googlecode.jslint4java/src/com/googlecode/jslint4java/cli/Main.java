@@ -1,15 +1,32 @@
 package com.googlecode.jslint4java.cli;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.ParameterDescription;
@@ -17,13 +34,18 @@ import com.beust.jcommander.ParameterException;
 import com.googlecode.jslint4java.Issue;
 import com.googlecode.jslint4java.JSLint;
 import com.googlecode.jslint4java.JSLintBuilder;
+import com.googlecode.jslint4java.JSLintMetricsCollector;
+import com.googlecode.jslint4java.JSLintPool;
 import com.googlecode.jslint4java.JSLintResult;
+import com.googlecode.jslint4java.JSLintResultCache;
 import com.googlecode.jslint4java.Option;
 import com.googlecode.jslint4java.formatter.JSLintResultFormatter;
-import com.googlecode.jslint4java.formatter.JSLintXmlFormatter;
-import com.googlecode.jslint4java.formatter.JUnitXmlFormatter;
+import com.googlecode.jslint4java.formatter.JSLintResultStreamFormatter;
+import com.googlecode.jslint4java.formatter.JSLintXmlStreamFormatter;
+import com.googlecode.jslint4java.formatter.JUnitXmlStreamFormatter;
 import com.googlecode.jslint4java.formatter.PlainFormatter;
 import com.googlecode.jslint4java.formatter.ReportFormatter;
+import com.googlecode.jslint4java.formatter.TextStreamFormatter;
 
 /**
  * A command line interface to {@link JSLint}.
@@ -73,7 +95,19 @@ class Main {
         }
     }
 
-    private static final String PROGNAME = "jslint";
+    static final String PROGNAME = "jslint";
+
+    /** The file name which means "read standard input". */
+    private static final String STDIN = "-";
+
+    /**
+     * What {@link #STDIN} is replaced with before parsing, as jcommander would otherwise take it
+     * for an option. No real file can have this name.
+     */
+    private static final String STDIN_MARKER = "\uffffstdin";
+
+    /** How many of the slowest files to show with --stats. */
+    private static final int SLOWEST_FILES = 10;
 
     /**
      * The main entry point. Try passing in "--help" for more details.
@@ -83,26 +117,49 @@ class Main {
      * @throws IOException
      */
     public static void main(String[] args) throws IOException {
+        System.exit(new Main().execute(args));
+    }
+
+    /**
+     * Run with the given command line, returning the exit status.
+     */
+    int execute(String[] args) throws IOException {
         try {
-            System.exit(new Main().run(args));
+            return run(args);
         } catch (DieException e) {
             if (e.getMessage() != null) {
-                System.err.println(PROGNAME + ": " + e.getMessage());
+                err.println(PROGNAME + ": " + e.getMessage());
             }
-            System.exit(e.getCode());
+            return e.getCode();
+        } finally {
+            out.flush();
+            err.flush();
         }
     }
 
     private int run(String[] args) throws IOException {
         List<String> files = processOptions(args);
-        if (formatter.header() != null) {
-            info(formatter.header());
+        if (serverPort != null) {
+            new LintServer(serverPort, newPool(), err).serve();
+            return 0;
         }
-        for (String file : files) {
-            lintFile(file);
+        // Results are streamed straight out, so memory use doesn't grow with the report.
+        Writer out = new BufferedWriter(new OutputStreamWriter(this.out, outputEncoding));
+        try {
+            formatter.open(out);
+            if (threads > 1) {
+                lintFilesInParallel(files);
+            } else {
+                for (String file : files) {
+                    report(lintFile(lint, file));
+                }
+            }
+            formatter.close();
+        } finally {
+            out.flush();
         }
-        if (formatter.footer() != null) {
-            info(formatter.footer());
+        if (metrics != null) {
+            reportMetrics();
         }
         return isErrored() ? 1 : 0;
     }
@@ -111,18 +168,112 @@ class Main {
 
     private boolean errored = false;
 
-    private JSLintResultFormatter formatter;
+    private final PrintStream out;
+
+    private final PrintStream err;
+
+    /** How {@link #out} encodes characters. */
+    private final Charset outputEncoding;
+
+    /** What relative paths are relative to, or null for the current directory. */
+    private File directory;
+
+    /** The contents of standard input sent by a {@link Client}, or null to read our own. */
+    private String stdin;
+
+    private String stdinName = "stdin";
+
+    /** True when running a request on behalf of a {@link Client}. */
+    private boolean remote = false;
+
+    /** The port to listen on with --server, or null to lint the files given. */
+    private Integer serverPort;
+
+    /** Where to keep results between runs, or null to always lint. */
+    private JSLintResultCache cache;
+
+    private JSLintResultStreamFormatter formatter;
 
     private JSLint lint;
 
+    /** The location of an alternative jslint.js, or null for the default. */
+    private String jslintFile;
+
+    /**
+     * The options given on the command line, so that they can be applied to each worker. A null
+     * value indicates a boolean option.
+     */
+    private final Map<Option, String> options = new EnumMap<Option, String>(Option.class);
+
+    private int threads = 1;
+
+    /** Collects timings, if --stats or --stats-csv were given. */
+    private JSLintMetricsCollector metrics;
+
+    /** Where to write --stats-csv output. */
+    private String statsCsv;
+
+    private boolean stats = false;
+
+    /** Only the "report" format needs more than the issues. */
+    private boolean collectReports = false;
+
     private Main() throws IOException {
-        lint = new JSLintBuilder().fromDefault();
+        this(new JSLintBuilder().fromDefault(), System.out, System.err, Charset.defaultCharset());
+    }
+
+    /**
+     * Create a new instance which lints using <i>lint</i>, and writes to <i>out</i> and
+     * <i>err</i>. Reports written to <i>out</i> will be encoded using <i>outputEncoding</i>.
+     */
+    Main(JSLint lint, PrintStream out, PrintStream err, Charset outputEncoding) {
+        this.lint = lint;
+        this.out = out;
+        this.err = err;
+        this.outputEncoding = outputEncoding;
     }
 
     private void die(String message) {
         throw new DieException(message, 1);
     }
 
+    /**
+     * Wait for a lint started by {@link #lintFilesInParallel(List)} to finish.
+     */
+    private JSLintResult await(Future<JSLintResult> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            die("interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else {
+                throw new RuntimeException(cause);
+            }
+        }
+        return null; // can never happen
+    }
+
+    /**
+     * Apply the command line options to a {@link JSLint}.
+     */
+    private void configure(JSLint worker) {
+        worker.setCollectReports(collectReports);
+        worker.setMetricsListener(metrics);
+        for (Entry<Option, String> entry : options.entrySet()) {
+            if (entry.getValue() == null) {
+                worker.addOption(entry.getKey());
+            } else {
+                worker.addOption(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
     /**
      * Fetch the named {@link Option}, or null if there is no matching one.
      */
@@ -135,24 +286,30 @@ class Main {
     }
 
     private void info(String message) {
-        System.out.println(message);
+        out.println(message);
     }
 
     private boolean isErrored() {
         return errored;
     }
 
-    private void lintFile(String file) throws IOException {
-        BufferedReader reader = null;
+    private JSLintResult lintFile(JSLint worker, String file) throws IOException {
+        Reader reader = null;
         try {
-            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), encoding));
-            JSLintResult result = lint.lint(file, reader);
-            info(formatter.format(result));
-            if (!result.getIssues().isEmpty()) {
-                setErrored(true);
+            if (STDIN_MARKER.equals(file)) {
+                file = stdinName;
+                reader = openStdin();
+            } else {
+                reader = new BufferedReader(new InputStreamReader(new FileInputStream(
+                        resolve(file)), encoding));
             }
+            if (cache != null) {
+                return cache.lint(worker, file, reader);
+            }
+            return worker.lint(file, reader);
         } catch (FileNotFoundException e) {
             die(file + ": No such file or directory.");
+            return null; // can never happen
         } finally {
             if (reader != null) {
                 reader.close();
@@ -160,13 +317,75 @@ class Main {
         }
     }
 
+    /**
+     * Lint all files on a pool of {@link #threads} workers. Results are still reported in the
+     * order that the files were given, so that the output is the same as a serial run.
+     */
+    private void lintFilesInParallel(List<String> files) throws IOException {
+        final JSLintPool pool = newPool();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<JSLintResult>> results = new ArrayList<Future<JSLintResult>>(files.size());
+            for (final String file : files) {
+                results.add(executor.submit(new Callable<JSLintResult>() {
+                    public JSLintResult call() throws Exception {
+                        JSLint worker = pool.borrow();
+                        try {
+                            configure(worker);
+                            return lintFile(worker, file);
+                        } finally {
+                            pool.release(worker);
+                        }
+                    }
+                }));
+            }
+            for (Future<JSLintResult> result : results) {
+                report(await(result));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Create a pool of {@link JSLint} instances, one per thread, using the same jslint.js as
+     * {@link #lint}.
+     */
+    private JSLintPool newPool() throws IOException {
+        JSLintBuilder builder = new JSLintBuilder();
+        if (jslintFile == null) {
+            return builder.poolFromDefault(threads);
+        }
+        Reader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(jslintFile),
+                    Charset.forName("UTF-8")));
+            return builder.poolFromReader(reader, jslintFile, threads);
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+    private Reader openStdin() {
+        if (stdin != null) {
+            return new StringReader(stdin);
+        }
+        return new BufferedReader(new InputStreamReader(System.in, encoding));
+    }
+
     private List<String> processOptions(String[] args) {
         JSLintFlags jslintFlags = new JSLintFlags();
         Flags flags = new Flags();
         JCommander jc = new JCommander(new Object[] { flags , jslintFlags });
         jc.setProgramName("jslint4java");
+        String[] parsed = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            parsed[i] = STDIN.equals(args[i]) ? STDIN_MARKER : args[i];
+        }
         try {
-			jc.parse(args);
+			jc.parse(parsed);
 		} catch (ParameterException e) {
 			info(e.getMessage());
 			usage(jc);
@@ -174,13 +393,52 @@ class Main {
         if (flags.help) {
             usage(jc);
         }
+        if (flags.server != null) {
+            if (remote) {
+                die("--server can't be sent to a server");
+            }
+            serverPort = flags.server;
+        }
+        if (remote) {
+            // Any local user can send a request, so it mustn't be able to run code of its
+            // choosing (the jslint.js given is run with full access to Java), or write files.
+            if (flags.jslint != null) {
+                die("--jslint can't be sent to a server");
+            }
+            if (flags.cache != null) {
+                die("--cache can't be sent to a server");
+            }
+            if (flags.statsCsv != null) {
+                die("--stats-csv can't be sent to a server");
+            }
+        }
+        if (flags.cache != null) {
+            cache = new JSLintResultCache(resolve(flags.cache));
+        }
         if (flags.encoding != null) {
             encoding = flags.encoding;
         }
         if (flags.jslint != null) {
             setJSLint(flags.jslint);
         }
+        if (flags.threads < 1) {
+            die("--threads must be at least 1");
+        }
+        // A server lints each request on a single warm instance; its own --threads sets how
+        // many requests may run at once.
+        threads = remote ? 1 : flags.threads;
+        if (flags.stdinName != null) {
+            stdinName = flags.stdinName;
+        }
         setResultFormatter(flags.report);
+        lint.setCollectReports(collectReports);
+        stats = flags.stats;
+        statsCsv = flags.statsCsv;
+        if (stats || statsCsv != null) {
+            metrics = new JSLintMetricsCollector();
+        }
+        // Always set, so that a server's instances don't keep a listener from an earlier request.
+        lint.setMetricsListener(metrics);
         for (ParameterDescription pd : jc.getParameters()) {
             Field field = pd.getField();
             // Is it declared on JSLintFlags?
@@ -198,10 +456,12 @@ class Main {
                 Class<?> type = field.getType();
                 if (type.isAssignableFrom(Boolean.class)) {
                     lint.addOption(o);
+                    options.put(o, null);
                 }
                 // In theory, everything else should be a String for later parsing.
                 else if (type.isAssignableFrom(String.class)) {
                     lint.addOption(o, (String) val);
+                    options.put(o, (String) val);
                 } else {
                     die("unknown type \"" + type + "\" (for " + field.getName() + ")");
                 }
@@ -211,7 +471,9 @@ class Main {
                 die(e.getMessage());
             }
         }
-        if (flags.files.isEmpty()) {
+        if (serverPort != null) {
+            return flags.files;
+        } else if (flags.files.isEmpty()) {
             usage(jc);
             return null; // can never happen
         } else {
@@ -219,13 +481,68 @@ class Main {
         }
     }
 
+    /**
+     * Output a single result, noting whether it had any problems.
+     */
+    private void report(JSLintResult result) throws IOException {
+        formatter.format(result);
+        if (!result.getIssues().isEmpty()) {
+            setErrored(true);
+        }
+    }
+
+    /**
+     * Output the statistics requested by --stats and --stats-csv.
+     */
+    private void reportMetrics() throws IOException {
+        if (stats) {
+            metrics.writeSummary(new PrintWriter(err), SLOWEST_FILES);
+        }
+        if (statsCsv != null) {
+            PrintWriter csv = new PrintWriter(new OutputStreamWriter(new FileOutputStream(
+                    resolve(statsCsv)), Charset.forName("UTF-8")));
+            try {
+                metrics.writeCsv(csv);
+            } finally {
+                csv.close();
+            }
+        }
+    }
+
+    /**
+     * Resolve a path given on the command line against {@link #directory}.
+     */
+    private File resolve(String path) {
+        File file = new File(path);
+        if (directory == null || file.isAbsolute()) {
+            return file;
+        }
+        return new File(directory, path);
+    }
+
+    /**
+     * Prepare to run a request on behalf of a {@link Client}, rather than our own command line.
+     *
+     * @param directory
+     *            the client's working directory, against which relative paths are resolved.
+     * @param stdin
+     *            the client's standard input, or null if it didn't send any.
+     */
+    void serveRequest(File directory, String stdin) {
+        this.directory = directory;
+        this.stdin = stdin;
+        this.remote = true;
+    }
+
     private void setErrored(boolean errored) {
         this.errored = errored;
     }
 
     private void setJSLint(String jslint) {
         try {
-            lint = new JSLintBuilder().fromFile(new File(jslint));
+            File file = resolve(jslint);
+            lint = new JSLintBuilder().fromFile(file);
+            jslintFile = file.getPath();
         } catch (IOException e) {
             die(e.getMessage());
         }
@@ -234,15 +551,16 @@ class Main {
     private void setResultFormatter(String reportType) {
         if (reportType == null || reportType.equals("")) {
             // The original CLI behaviour: one-per-line, with prefix.
-            formatter = new DefaultFormatter();
+            formatter = new TextStreamFormatter(new DefaultFormatter());
         } else if (reportType.equals("plain")) {
-            formatter = new PlainFormatter();
+            formatter = new TextStreamFormatter(new PlainFormatter());
         } else if (reportType.equals("xml")) {
-            formatter = new JSLintXmlFormatter();
+            formatter = new JSLintXmlStreamFormatter();
         } else if (reportType.equals("junit")) {
-            formatter = new JUnitXmlFormatter();
+            formatter = new JUnitXmlStreamFormatter();
         } else if (reportType.equals("report")) {
-            formatter = new ReportFormatter();
+            formatter = new TextStreamFormatter(new ReportFormatter());
+            collectReports = true;
         } else {
             die("unknown report type '" + reportType + "'");
         }
@@ -250,7 +568,9 @@ class Main {
     }
 
     private void usage(JCommander jc) {
-        jc.usage();
+        StringBuilder sb = new StringBuilder();
+        jc.usage(sb);
+        out.print(sb);
         info("using jslint version " + lint.getEdition());
         throw new DieException(null, 0);
     }
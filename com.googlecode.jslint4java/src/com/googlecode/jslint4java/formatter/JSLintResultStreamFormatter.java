@@ -0,0 +1,35 @@
+package com.googlecode.jslint4java.formatter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.googlecode.jslint4java.JSLintResult;
+
+/**
+ * An interface for writing a series of {@link JSLintResult}s directly to a {@link Writer}, so
+ * that a report never needs to be held in memory in its entirety.
+ *
+ * <p>
+ * Call {@link #open(Writer)} once, then {@link #format(JSLintResult)} for each result, then
+ * {@link #close()}.
+ *
+ * @see JSLintResultFormatter
+ */
+public interface JSLintResultStreamFormatter {
+
+    /**
+     * Write the footer (if any) and flush. The underlying {@link Writer} is not closed.
+     */
+    void close() throws IOException;
+
+    /**
+     * Write a single {@link JSLintResult}.
+     */
+    void format(JSLintResult result) throws IOException;
+
+    /**
+     * Begin writing to <i>out</i>, including any header.
+     */
+    void open(Writer out) throws IOException;
+
+}
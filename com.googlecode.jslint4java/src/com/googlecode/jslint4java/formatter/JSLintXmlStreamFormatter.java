@@ -0,0 +1,35 @@
+package com.googlecode.jslint4java.formatter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.googlecode.jslint4java.Issue;
+import com.googlecode.jslint4java.JSLintResult;
+
+/**
+ * A streaming version of {@link JSLintXmlFormatter}, producing the same document.
+ */
+public class JSLintXmlStreamFormatter extends XmlStreamFormatter {
+
+    @Override
+    protected void format(JSLintResult result, Writer out) throws IOException {
+        out.write("<file");
+        attr(out, "name", result.getName());
+        out.write(">\n");
+        for (Issue issue : result.getIssues()) {
+            out.write("<issue");
+            attr(out, "line", Integer.toString(issue.getLine()));
+            attr(out, "char", Integer.toString(issue.getCharacter()));
+            attr(out, "reason", issue.getReason());
+            attr(out, "evidence", issue.getEvidence());
+            out.write("/>\n");
+        }
+        out.write("</file>\n");
+    }
+
+    @Override
+    protected String root() {
+        return "jslint";
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.googlecode.jslint4java.formatter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import com.googlecode.jslint4java.Issue;
+import com.googlecode.jslint4java.JSLintResult;
+
+/**
+ * A streaming version of {@link JUnitXmlFormatter}, producing the same document.
+ */
+public class JUnitXmlStreamFormatter extends XmlStreamFormatter {
+
+    private static final String TEST_CLASSNAME = "com.googlecode.jslint4java";
+
+    @Override
+    protected void format(JSLintResult result, Writer out) throws IOException {
+        List<Issue> issues = result.getIssues();
+        String testFailures = issues.isEmpty() ? "0" : "1";
+        String time = formatTimeAsSeconds(result.getDuration());
+        out.write("<testsuite");
+        attr(out, "failures", testFailures);
+        attr(out, "time", time);
+        attr(out, "skipped", "0");
+        attr(out, "errors", testFailures);
+        attr(out, "tests", "1");
+        attr(out, "name", result.getName());
+        out.write("><testcase");
+        attr(out, "time", time);
+        attr(out, "classname", TEST_CLASSNAME);
+        attr(out, "name", result.getName());
+        out.write(">");
+        if (!issues.isEmpty()) {
+            out.write("<failure");
+            String msg = String.format("Found %d problem%s", issues.size(), s(issues.size()));
+            attr(out, "message", msg);
+            attr(out, "type", AssertionError.class.getName());
+            out.write(">");
+            for (Issue issue : issues) {
+                text(out, issue.toString());
+                out.write("\n");
+            }
+            out.write("</failure>");
+        }
+        out.write("</testcase></testsuite>\n");
+    }
+
+    private String formatTimeAsSeconds(long duration) {
+        return String.format("%.3f", duration / 1000.0);
+    }
+
+    // Return an "s" for any size other than one. Crap i18n, I know.
+    private String s(int size) {
+        return size == 1 ? "" : "s";
+    }
+
+    @Override
+    protected String root() {
+        return "testsuites";
+    }
+
+}
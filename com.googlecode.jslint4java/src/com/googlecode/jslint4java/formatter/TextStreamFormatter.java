@@ -0,0 +1,45 @@
+package com.googlecode.jslint4java.formatter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.googlecode.jslint4java.JSLintResult;
+
+/**
+ * Adapt a {@link JSLintResultFormatter} to a {@link JSLintResultStreamFormatter}. Each result is
+ * still formatted as a {@link String}, but it is written out straight away, so only one result
+ * is in memory at a time. Each non-null piece of output is followed by a line separator.
+ */
+public class TextStreamFormatter implements JSLintResultStreamFormatter {
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private final JSLintResultFormatter formatter;
+
+    private Writer out;
+
+    public TextStreamFormatter(JSLintResultFormatter formatter) {
+        this.formatter = formatter;
+    }
+
+    public void close() throws IOException {
+        writeLine(formatter.footer());
+        out.flush();
+    }
+
+    public void format(JSLintResult result) throws IOException {
+        writeLine(formatter.format(result));
+    }
+
+    public void open(Writer out) throws IOException {
+        this.out = out;
+        writeLine(formatter.header());
+    }
+
+    private void writeLine(String str) throws IOException {
+        if (str != null) {
+            out.write(str);
+            out.write(LINE_SEPARATOR);
+        }
+    }
+}
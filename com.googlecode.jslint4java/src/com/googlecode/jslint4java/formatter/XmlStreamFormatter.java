@@ -0,0 +1,89 @@
+package com.googlecode.jslint4java.formatter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.googlecode.jslint4java.JSLintResult;
+
+/**
+ * A convenience super-class for streaming XML out to a {@link Writer}. Markup is written the same
+ * way as {@link XmlFormatter} does: attributes in single quotes, with {@code &}, {@code <},
+ * {@code "} and {@code '} escaped, and text with just {@code &} and {@code <} escaped.
+ */
+public abstract class XmlStreamFormatter implements JSLintResultStreamFormatter {
+
+    private Writer out;
+
+    public void close() throws IOException {
+        out.write("</" + root() + ">\n");
+        out.flush();
+    }
+
+    public void format(JSLintResult result) throws IOException {
+        format(result, out);
+    }
+
+    /**
+     * Write out a single result.
+     */
+    protected abstract void format(JSLintResult result, Writer out) throws IOException;
+
+    public void open(Writer out) throws IOException {
+        this.out = out;
+        out.write("<" + root() + ">\n");
+    }
+
+    /**
+     * The name of the root element.
+     */
+    protected abstract String root();
+
+    /**
+     * Write an attribute, treating null as the empty string.
+     */
+    protected void attr(Writer out, String key, String value) throws IOException {
+        out.write(' ');
+        escape(out, key, true);
+        out.write("='");
+        escape(out, value == null ? "" : value, true);
+        out.write('\'');
+    }
+
+    /**
+     * Write some text, treating null as the empty string.
+     */
+    protected void text(Writer out, String str) throws IOException {
+        if (str != null) {
+            escape(out, str, false);
+        }
+    }
+
+    private void escape(Writer out, String str, boolean inAttr) throws IOException {
+        int start = 0;
+        for (int i = 0; i < str.length(); i++) {
+            String entity;
+            switch (str.charAt(i)) {
+            case '&':
+                entity = "&amp;";
+                break;
+            case '<':
+                entity = "&lt;";
+                break;
+            case '"':
+                entity = inAttr ? "&quot;" : null;
+                break;
+            case '\'':
+                entity = inAttr ? "&apos;" : null;
+                break;
+            default:
+                entity = null;
+            }
+            if (entity != null) {
+                out.write(str, start, i - start);
+                out.write(entity);
+                start = i + 1;
+            }
+        }
+        out.write(str, start, str.length() - start);
+    }
+}
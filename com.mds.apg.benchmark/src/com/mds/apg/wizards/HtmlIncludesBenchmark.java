@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2012 Mobile Developer Solutions
+ *
+ * Licensed under the Eclipse Public License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.eclipse.org/org/documents/epl-v10.php
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mds.apg.wizards;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare {@link HtmlIncludes} against the string searching it replaced, which rescanned and
+ * copied the whole of index.html for every include it updated.
+ *
+ * <pre>
+ * java com.mds.apg.wizards.HtmlIncludesBenchmark index.html [index.html ...]
+ * </pre>
+ *
+ * Each file has the jQuery Mobile includes and then the Sencha Touch includes updated, as the
+ * wizard does. Both ways are checked to produce the same html before timing.
+ *
+ * This lives outside the plug-in, in the same package so that it can reach HtmlIncludes, and
+ * runs with the plug-in's classes on the classpath.
+ */
+public class HtmlIncludesBenchmark {
+
+    private static final int ROUNDS = 2000;
+
+    private static final String JQM = "jquery.mobile-1.1.0";
+
+    public static void main(String[] args) throws Exception {
+        String[] sources = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sources[i] = StringIO.read(args[i]);
+            check(args[i], sources[i]);
+        }
+        // Alternate so that neither way benefits from running second.
+        for (int i = 0; i < 2; i++) {
+            time(sources, false);
+            time(sources, true);
+        }
+    }
+
+    /** Ensure that both ways agree. */
+    private static void check(String name, String source) throws IOException {
+        String before = updateBefore(source);
+        String after = updateAfter(source);
+        if (!before.equals(after)) {
+            throw new AssertionError("include updates disagree for " + name + ":\n" + before
+                    + "\n----\n" + after);
+        }
+        System.out.println(String.format("%s: %d chars", name, source.length()));
+    }
+
+    private static void time(String[] sources, boolean tokenized) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            for (String source : sources) {
+                if (tokenized) {
+                    updateAfter(source);
+                } else {
+                    updateBefore(source);
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%s: %d us per file set", tokenized ? "tokenized"
+                : "string search", TimeUnit.NANOSECONDS.toMicros(elapsed / ROUNDS)));
+    }
+
+    private static String updateAfter(String source) throws IOException {
+        HtmlIncludes includes = new HtmlIncludes(source, "");
+        includes.updatePath(JQM, ".css", "jquery.mobile/", null);
+        includes.updatePath(JQM, ".js", "jquery.mobile/", null);
+        includes.updatePath("jquery-1.7.2", ".js", "jquery.mobile/", ".min");
+        includes.updatePath("sencha-touch", ".css", "sencha/resources/css/", null);
+        includes.updatePath("sencha-touch", ".js", "sencha/", null);
+        return includes.toString();
+    }
+
+    private static String updateBefore(String source) throws IOException {
+        String s = legacy(source, JQM, ".css\"", "\"jquery.mobile/", "", null);
+        s = legacy(s, JQM, ".js\"", "\"jquery.mobile/", "", null);
+        s = legacy(s, "jquery-1.7.2", ".js\"", "\"jquery.mobile/", "", ".min\"");
+        s = legacy(s, "sencha-touch", ".css\"", "\"sencha/resources/css/", "", null);
+        return legacy(s, "sencha-touch", ".js\"", "\"sencha/", "", null);
+    }
+
+    /** PhonegapProjectPopulate.updatePathInHtml, as it was. */
+    private static String legacy(String fileContents, String fileName, 
+            String suffix, String prepend, String indexHtmlDirectory, String suffixOverride) throws IOException {
+
+        String fullName = fileName + ".min"+ suffix;  
+        int fileNameIndex = fileContents.indexOf(fullName);
+        if (fileNameIndex <= 0) {
+            fullName = fileName + ".min"; // No .js ok for min to get around eclipse issues with min files
+            fileNameIndex = fileContents.indexOf(fullName);
+        }
+        if (fileNameIndex <= 0) {
+            fullName = fileName + "-debug" + suffix;
+            fileNameIndex = fileContents.indexOf(fullName);
+        }
+        if (fileNameIndex <= 0) {
+            fullName = fileName + suffix;
+            fileNameIndex = fileContents.indexOf(fullName);
+        }
+        if (fileNameIndex > 0) {   // Found it
+            int startIncludeIndex = fileContents.lastIndexOf("\"", fileNameIndex);
+            fileContents = fileContents.substring(0, startIncludeIndex) + prepend
+                    + fileContents.substring(fileNameIndex);
+        } else { // must add a new line.  Bug if indexOf finds stuff inside comments
+            int insertSpot = fileContents.indexOf("</head>");
+            int firstIndex = fileContents.indexOf(suffix);
+            if (firstIndex > 0) {
+                insertSpot = fileContents.lastIndexOf('<', firstIndex);
+            } else if (suffix == ".css\"") { // no css includes in source
+                int firstJsIndex = fileContents.indexOf(".js\"");
+                if (firstJsIndex > 0) {
+                    insertSpot = fileContents.lastIndexOf('<', firstJsIndex);
+                }
+            }
+
+            if (insertSpot <= 0) {
+                throw new IOException("Supplied index.html in " + indexHtmlDirectory + 
+                        "  is missing the </head> tag");
+            }
+            // adjust insertSpot back to end of last line
+            while (Character.isWhitespace(fileContents.charAt(--insertSpot))) ;
+            insertSpot++;
+
+            if (suffix.equals(".js\"")) {
+                fileContents = fileContents.substring(0, insertSpot)
+                    + "\n      <script type=\"text/javascript\" src=" + prepend + 
+                    (suffixOverride != null ? (fileName + suffixOverride) : fullName) + "></script>"  + 
+                    fileContents.substring(insertSpot);
+            } else if (suffix.equals(".css\"")) {
+                fileContents = fileContents.substring(0, insertSpot)
+                    + "\n      <link rel=\"stylesheet\" href=" + prepend + 
+                    fullName + " type=\"text/css\">"
+                    + fileContents.substring(insertSpot);              
+            } else {
+                throw new IllegalArgumentException("legacy called with unsupported suffix");
+            }
+        }
+        return fileContents;
+    }
+}
@@ -1,6 +1,12 @@
 package com.mds.apg;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Enumeration;
+
 import org.eclipse.ui.plugin.AbstractUIPlugin;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 
 /**
@@ -13,6 +19,12 @@ public class Activator extends AbstractUIPlugin {
 
 	// The shared instance
 	private static Activator plugin;
+
+	// The files packaged in the plug-in, read on first use
+	private ResourceCatalog resourceCatalog;
+
+	// Extracted templates, created on first use
+	private TemplateStore templateStore;
 	
 	/**
 	 * The constructor
@@ -47,4 +59,48 @@ public class Activator extends AbstractUIPlugin {
 		return plugin;
 	}
 
+	/**
+	 * Returns the store of extracted templates, kept in the plug-in's state area
+	 *
+	 * @return the template store
+	 * @throws IOException if the resource catalog can't be read
+	 */
+	public synchronized TemplateStore getTemplateStore() throws IOException {
+		if (templateStore == null) {
+			templateStore = new TemplateStore(getBundle(), getResourceCatalog(),
+					getStateLocation().append("templates").toFile());
+		}
+		return templateStore;
+	}
+
+	/**
+	 * Returns the catalog of the files packaged in the plug-in. It is read from the
+	 * catalog generated when the plug-in was built; a plug-in run from the workspace
+	 * has none, and then the bundle is searched instead, once.
+	 *
+	 * @return the resource catalog
+	 * @throws IOException if the catalog can't be read
+	 */
+	public synchronized ResourceCatalog getResourceCatalog() throws IOException {
+		if (resourceCatalog == null) {
+			Bundle bundle = getBundle();
+			URL url = bundle.getEntry(ResourceCatalog.CATALOG);
+			if (url != null) {
+				InputStream stream = url.openStream();
+				resourceCatalog = ResourceCatalog.read(stream);
+			} else {
+				ResourceCatalog catalog = new ResourceCatalog();
+				@SuppressWarnings("unchecked")
+				Enumeration<URL> en = bundle.findEntries(ResourceCatalog.RESOURCES, "*", true);
+				while (en != null && en.hasMoreElements()) {
+					String path = en.nextElement().getPath();
+					if (path.endsWith("/") || path.indexOf("/.svn/") >= 0) continue;
+					catalog.add(path, -1, null);
+				}
+				resourceCatalog = catalog;
+			}
+		}
+		return resourceCatalog;
+	}
+
 }
@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2012 Mobile Developer Solutions
+ *
+ * Licensed under the Eclipse Public License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.eclipse.org/org/documents/epl-v10.php
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mds.apg;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A list of every file under resources/ in the plugin, with its size and SHA-1 digest, so that
+ * the wizard can tell which PhoneGap versions and templates are packaged without searching the
+ * bundle, and can check the files it extracts.
+ *
+ * The catalog is generated when the plugin is built, by running {@link #main(String[])} on the
+ * plugin directory, and is shipped as {@value #CATALOG}; it is not kept in the source tree. It is
+ * a text file with a line for each file: the path within the bundle, the size and the digest,
+ * separated by tabs.
+ */
+public class ResourceCatalog {
+
+    /** Where the catalog is in the bundle. */
+    public static final String CATALOG = "resources.catalog";
+
+    /** The directory of the bundle which is catalogued. */
+    public static final String RESOURCES = "resources";
+
+    /** A file in the bundle. */
+    public static final class Entry {
+        public final String path;     // Within the bundle, such as "resources/jqm/demo2/index.html"
+        public final long size;       // Or -1 if not known
+        public final String sha1;     // In hex, or null if not known
+
+        Entry(String path, long size, String sha1) {
+            this.path = path;
+            this.size = size;
+            this.sha1 = sha1;
+        }
+    }
+
+    private final SortedMap<String, Entry> mEntries = new TreeMap<String, Entry>();
+
+    /**
+     * Read a catalog written by {@link #write(Writer)}.
+     */
+    public static ResourceCatalog read(InputStream in) throws IOException {
+        ResourceCatalog catalog = new ResourceCatalog();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() == 0 || line.startsWith("#")) continue;
+                String[] fields = line.split("\t");
+                if (fields.length != 3) {
+                    throw new IOException("ResourceCatalog: " + "bad line: " + line);
+                }
+                try {
+                    catalog.add(fields[0], Long.parseLong(fields[1]), fields[2]);
+                } catch (NumberFormatException e) {
+                    throw new IOException("ResourceCatalog: " + "bad line: " + line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return catalog;
+    }
+
+    /**
+     * Add a file, for a catalog built at run time when none was shipped.
+     *
+     * @param size Or -1 if not known
+     * @param sha1 Or null if not known
+     */
+    public void add(String path, long size, String sha1) {
+        path = normalize(path);
+        mEntries.put(path, new Entry(path, size, sha1));
+    }
+
+    /**
+     * Return the file at <i>path</i>, or null if there is none.
+     */
+    public Entry getEntry(String path) {
+        return mEntries.get(normalize(path));
+    }
+
+    /**
+     * Return every file below the directory <i>dir</i>, in order of path.
+     */
+    public List<Entry> getEntries(String dir) {
+        String prefix = normalize(dir) + "/";
+        // '/' + 1 is '0', so this is everything starting with the prefix
+        return new ArrayList<Entry>(mEntries.subMap(prefix,
+                prefix.substring(0, prefix.length() - 1) + "0").values());
+    }
+
+    /**
+     * Return the names of the files and directories directly within the directory <i>dir</i>,
+     * in order.
+     */
+    public List<String> getChildren(String dir) {
+        String prefix = normalize(dir) + "/";
+        TreeSet<String> children = new TreeSet<String>();
+        for (Entry entry : getEntries(dir)) {
+            String rest = entry.path.substring(prefix.length());
+            int slash = rest.indexOf('/');
+            children.add(slash < 0 ? rest : rest.substring(0, slash));
+        }
+        return new ArrayList<String>(children);
+    }
+
+    /**
+     * Return the names of the directories within <i>dir</i> which are versions, such as "1.9.0",
+     * oldest first.
+     */
+    public List<String> getVersions(String dir) {
+        String prefix = normalize(dir) + "/";
+        List<String> versions = new ArrayList<String>();
+        for (String name : getChildren(dir)) {
+            if (Character.isDigit(name.charAt(0)) && !mEntries.containsKey(prefix + name)) {
+                versions.add(name);
+            }
+        }
+        Collections.sort(versions, new Comparator<String>() {
+            public int compare(String a, String b) {
+                String[] as = a.split("\\.");
+                String[] bs = b.split("\\.");
+                for (int i = 0; i < Math.min(as.length, bs.length); i++) {
+                    int diff = compareParts(as[i], bs[i]);
+                    if (diff != 0) return diff;
+                }
+                return as.length - bs.length;
+            }
+        });
+        return versions;
+    }
+
+    /**
+     * Write the catalog, one line for each file.
+     */
+    public void write(Writer writer) throws IOException {
+        writer.write("# Generated by com.mds.apg.ResourceCatalog - path, size, SHA-1\n");
+        for (Entry entry : mEntries.values()) {
+            writer.write(entry.path + "\t" + entry.size + "\t" + entry.sha1 + "\n");
+        }
+    }
+
+    /**
+     * Return a new digest for checking files against the catalog.
+     */
+    public static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("ResourceCatalog: " + e);
+        }
+    }
+
+    /**
+     * Return a digest in the form used by the catalog.
+     */
+    public static String toHex(byte[] digest) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest) {
+            sb.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Generate the catalog of a plugin directory, as part of the build.
+     *
+     * @param args The plugin directory, and optionally where to write the catalog; by default
+     *            it goes in the plugin directory
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: ResourceCatalog <plugin directory> [<catalog file>]");
+            System.exit(1);
+        }
+        File pluginDir = new File(args[0]);
+        File out = args.length > 1 ? new File(args[1]) : new File(pluginDir, CATALOG);
+        File resources = new File(pluginDir, RESOURCES);
+        if (!resources.isDirectory()) {
+            throw new IOException("ResourceCatalog: " + "no " + RESOURCES + " directory in " + pluginDir);
+        }
+        ResourceCatalog catalog = new ResourceCatalog();
+        catalog.scan(resources, RESOURCES);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(out), "UTF-8");
+        try {
+            catalog.write(writer);
+        } finally {
+            writer.close();
+        }
+        System.out.println("ResourceCatalog: " + catalog.mEntries.size() + " files written to " + out);
+    }
+
+    private void scan(File dir, String path) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new IOException("ResourceCatalog: " + "could not list " + dir);
+        }
+        Arrays.sort(files);
+        for (File f : files) {
+            if (f.getName().startsWith(".")) continue;   // .svn and the like
+            String childPath = path + "/" + f.getName();
+            if (f.isDirectory()) {
+                scan(f, childPath);
+            } else {
+                add(childPath, f.length(), digest(f));
+            }
+        }
+    }
+
+    private static String digest(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        return toHex(digest.digest());
+    }
+
+    private static int compareParts(String a, String b) {
+        try {
+            return Integer.valueOf(a).compareTo(Integer.valueOf(b));
+        } catch (NumberFormatException e) {
+            return a.compareTo(b);
+        }
+    }
+
+    /**
+     * Remove any leading or trailing separators, so that "/a/b/" and "a/b" are the same path.
+     */
+    private static String normalize(String path) {
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/') start++;
+        while (end > start && path.charAt(end - 1) == '/') end--;
+        return path.substring(start, end);
+    }
+}
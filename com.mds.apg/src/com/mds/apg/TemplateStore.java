@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2012 Mobile Developer Solutions
+ *
+ * Licensed under the Eclipse Public License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.eclipse.org/org/documents/epl-v10.php
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mds.apg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.osgi.framework.Bundle;
+
+import com.mds.apg.wizards.FileCopy;
+
+/**
+ * The templates and frameworks packaged in the plugin, extracted to the plugin's state area so
+ * that each new project can be filled with plain local file copies, rather than by streaming
+ * every file out of the plugin jar again.
+ *
+ * Each template directory or file is extracted the first time it's asked for, into a directory
+ * named for the bundle's version and modification time. Extraction goes to a temporary name and
+ * is renamed into place when complete, so a half extracted template is never used. When the
+ * bundle is updated, the extractions for the old bundle are deleted.
+ *
+ * A directory existing doesn't mean its template was extracted: extracting "a/b" creates "a" to
+ * hold it. So each completed directory extraction is recorded by an empty marker file in
+ * the ".complete" directory, named for the template's path. Extracting "a" afterwards replaces the
+ * directory which holds "a/b", and the new one holds a complete copy of "a/b" too.
+ *
+ * What a template holds is looked up in the {@link ResourceCatalog}, rather than by searching the
+ * bundle, and each file extracted is checked against the size and digest the catalog gives.
+ */
+public class TemplateStore {
+
+    /** The directory in the root holding a marker for each completed directory extraction. */
+    private static final String COMPLETE = ".complete";
+
+    private final Bundle mBundle;
+    private final ResourceCatalog mCatalog;
+    private final File mRoot;            // Extractions for this version of the bundle
+    private final File mMarkers;         // Markers for completed directory extractions
+    private final Set<String> mComplete = new HashSet<String>(); // Paths known to be extracted
+
+    /**
+     * @param bundle The bundle holding the templates
+     * @param catalog The files of the bundle
+     * @param storeDir Where to keep extractions; may hold those of older bundles
+     */
+    public TemplateStore(Bundle bundle, ResourceCatalog catalog, File storeDir) {
+        mBundle = bundle;
+        mCatalog = catalog;
+        String key = bundle.getVersion() + "_" + bundle.getLastModified();
+        mRoot = new File(storeDir, key);
+        mMarkers = new File(mRoot, COMPLETE);
+        File[] others = storeDir.listFiles();
+        if (others != null) {
+            for (File f : others) {
+                if (!f.getName().equals(key)) {
+                    delete(f);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the contents of a template directory in the bundle to a directory on disk, overwriting
+     * any files already there.
+     *
+     * @param dir The directory in the bundle, such as "/resources/jqm/demo2"
+     * @param destination The directory to copy into
+     */
+    public void copyDirectory(String dir, String destination) throws IOException {
+        FileCopy.recursiveForceCopy(getDirectory(dir).getPath(), destination);
+    }
+
+    /**
+     * Return a local copy of a template directory in the bundle, extracting it if necessary.
+     */
+    public synchronized File getDirectory(String dir) throws IOException {
+        String path = normalize(dir);
+        File target = new File(mRoot, path);
+        if (target.isDirectory() && isComplete(path)) {
+            return target;
+        }
+        List<ResourceCatalog.Entry> entries = mCatalog.getEntries(path);
+        if (entries.isEmpty()) {
+            throw new IOException("TemplateStore: " + "no such template: " + dir);
+        }
+        File temp = tempFor(target);
+        int base = path.length() + 1;
+        for (ResourceCatalog.Entry entry : entries) {
+            File toFile = new File(temp, entry.path.substring(base));
+            mkdirs(toFile.getParentFile());
+            extract(entry, toFile);
+        }
+        if (target.exists()) {
+            // Only holds extractions from within this template, which are about to go with it.
+            forgetWithin(path);
+            delete(target);
+        }
+        publish(temp, target);
+        mkdirs(mMarkers);
+        File marker = new File(mMarkers, markerName(path));
+        if (!marker.createNewFile() && !marker.isFile()) {
+            throw new IOException("TemplateStore: " + "could not create " + marker);
+        }
+        mComplete.add(path);
+        return target;
+    }
+
+    /**
+     * Return a local copy of a single file in the bundle, extracting it if necessary.
+     *
+     * @param fileName The file in the bundle, such as "/resources/phonegap/icons/mdspgicon.png"
+     */
+    public synchronized File getFile(String fileName) throws IOException {
+        String path = normalize(fileName);
+        File target = new File(mRoot, path);
+        if (target.isFile()) {
+            return target;
+        }
+        ResourceCatalog.Entry entry = mCatalog.getEntry(path);
+        if (entry == null) {
+            throw new IOException("TemplateStore: " + "no such template file: " + fileName);
+        }
+        File temp = tempFor(target);
+        extract(entry, temp);
+        publish(temp, target);
+        return target;
+    }
+
+    /**
+     * Stream a file out of the bundle, checking it against the catalog.
+     */
+    private void extract(ResourceCatalog.Entry entry, File toFile) throws IOException {
+        URL url = mBundle.getEntry(entry.path);
+        if (url == null) {
+            throw new IOException("TemplateStore: " + "missing from the plugin: " + entry.path);
+        }
+        MessageDigest digest = entry.sha1 != null ? ResourceCatalog.newDigest() : null;
+        InputStream stream = url.openStream();
+        if (digest != null) {
+            stream = new DigestInputStream(stream, digest);
+        }
+        FileCopy.coreStreamCopy(stream, toFile);
+        if ((entry.size >= 0 && toFile.length() != entry.size)
+                || (digest != null && !entry.sha1.equals(ResourceCatalog.toHex(digest.digest())))) {
+            toFile.delete();
+            throw new IOException("TemplateStore: " + "damaged in the plugin: " + entry.path);
+        }
+    }
+
+    /**
+     * Whether the template at <i>path</i>, or one which holds it, has been extracted.
+     */
+    private boolean isComplete(String path) {
+        for (String p = path; p.length() > 0; p = p.substring(0, Math.max(0, p.lastIndexOf('/')))) {
+            if (mComplete.contains(p)) {
+                return true;
+            }
+            if (new File(mMarkers, markerName(p)).isFile()) {
+                mComplete.add(p);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Forget the directory extractions within the template at <i>path</i>.
+     */
+    private void forgetWithin(String path) {
+        String prefix = markerName(path + "/");
+        File[] markers = mMarkers.listFiles();
+        if (markers != null) {
+            for (File marker : markers) {
+                if (marker.getName().startsWith(prefix)) {
+                    marker.delete();
+                }
+            }
+        }
+        for (Iterator<String> it = mComplete.iterator(); it.hasNext();) {
+            if (it.next().startsWith(path + "/")) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * The name of the marker for a template path, with "%" and "/" escaped so that it's a single
+     * file name, and one path being the start of another shows in the names too.
+     */
+    private static String markerName(String path) {
+        return path.replace("%", "%25").replace("/", "%2F");
+    }
+
+    /**
+     * Remove any leading or trailing separators, so that "/a/b/" and "a/b" are the same template.
+     */
+    private static String normalize(String path) {
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/') start++;
+        while (end > start && path.charAt(end - 1) == '/') end--;
+        return path.substring(start, end);
+    }
+
+    /**
+     * Where to extract to before renaming to target. Anything left by an earlier, failed
+     * extraction is cleared away first.
+     */
+    private static File tempFor(File target) throws IOException {
+        File parent = target.getParentFile();
+        mkdirs(parent);
+        File temp = new File(parent, target.getName() + ".partial");
+        delete(temp);
+        return temp;
+    }
+
+    private static void publish(File temp, File target) throws IOException {
+        if (!temp.exists()) {
+            mkdirs(temp); // An empty template directory
+        }
+        if (!temp.renameTo(target)) {
+            delete(temp);
+            throw new IOException("TemplateStore: " + "could not create " + target);
+        }
+    }
+
+    private static void mkdirs(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("TemplateStore: " + "directory Creation Failed: " + dir);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
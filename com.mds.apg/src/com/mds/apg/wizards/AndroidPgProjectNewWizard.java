@@ -171,7 +171,8 @@ public class AndroidPgProjectNewWizard extends NewProjectWizard implements INewW
                 mPhonegapPage.mJqmDialog.mJqmVersion,
                 mPhonegapPage.mSenchaDialog.getValue(),
                 mPhonegapPage.mSenchaDialog.senchaChecked(), 
-                mPhonegapPage.mSenchaDialog.useSenchaKitchenSink());
+                mPhonegapPage.mSenchaDialog.useSenchaKitchenSink(),
+                mPhonegapPage.mInitContentsDialog.isBundleAssets());
 
         // Create a monitored operation to create the actual project
         WorkspaceModifyOperation op = new WorkspaceModifyOperation() {
@@ -0,0 +1,353 @@
+/*
+ * Copyright (C) 2012 Mobile Developer Solutions
+ *
+ * Licensed under the Eclipse Public License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.eclipse.org/org/documents/epl-v10.php
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mds.apg.wizards;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.wst.jsdt.core.ToolFactory;
+import org.eclipse.wst.jsdt.core.compiler.IScanner;
+import org.eclipse.wst.jsdt.core.compiler.ITerminalSymbols;
+import org.eclipse.wst.jsdt.core.compiler.InvalidInputException;
+
+/**
+ * Bundles the scripts and stylesheets that index.html includes, so that a WebView loads a few
+ * minified files rather than many large ones.
+ *
+ * Each run of local scripts or stylesheets included one after the other is concatenated, and
+ * minified where it isn't already, into a bundle in the www directory; index.html then includes
+ * the bundle in place of the run. The original files are left where they are, for debugging.
+ *
+ * JavaScript is minified with the JSDT scanner: comments are dropped, apart from those starting
+ * "/*!", and white space is squeezed. Line breaks are kept wherever semicolon insertion could
+ * depend on them, so the minified code is never parsed differently; if the scanner can't read a
+ * file, or reads the result as different tokens, the file is bundled as it is.
+ */
+public class AssetBundler {
+
+    private static final Pattern CSS_URL =
+            Pattern.compile("url\\(\\s*(['\"]?)([^'\")]*)\\1\\s*\\)");
+
+    private final String mWwwDir;
+    private final StringBuilder mReport = new StringBuilder();
+    private int mScriptBundles;
+    private int mStylesheetBundles;
+
+    /**
+     * @param wwwDir The directory holding index.html
+     */
+    public AssetBundler(String wwwDir) {
+        mWwwDir = wwwDir.endsWith("/") ? wwwDir : wwwDir + "/";
+    }
+
+    /**
+     * Bundle the includes of index.html, and point index.html at the bundles.
+     *
+     * @return a report of each bundle's files and sizes
+     */
+    public String bundle() throws IOException {
+        String indexFile = mWwwDir + "index.html";
+        HtmlIncludes includes = new HtmlIncludes(StringIO.read(indexFile), mWwwDir);
+        bundleRuns(includes, ".js");
+        bundleRuns(includes, ".css");
+        if (mScriptBundles + mStylesheetBundles > 0) {
+            StringIO.write(indexFile, includes.toString());
+        } else {
+            mReport.append("Nothing to bundle in ").append(indexFile).append('\n');
+        }
+        return mReport.toString();
+    }
+
+    private void bundleRuns(HtmlIncludes includes, String extension) throws IOException {
+        for (List<HtmlIncludes.Tag> run : includes.getRuns(extension)) {
+            // Only local files can be bundled, so a remote one splits the run
+            List<HtmlIncludes.Tag> local = new ArrayList<HtmlIncludes.Tag>();
+            for (HtmlIncludes.Tag tag : run) {
+                if (isLocal(tag.getValue())) {
+                    local.add(tag);
+                } else {
+                    bundleRun(includes, local, extension);
+                    local = new ArrayList<HtmlIncludes.Tag>();
+                }
+            }
+            bundleRun(includes, local, extension);
+        }
+    }
+
+    private void bundleRun(HtmlIncludes includes, List<HtmlIncludes.Tag> run, String extension)
+            throws IOException {
+        if (run.isEmpty() || (run.size() == 1 && isMinified(run.get(0).getValue()))) {
+            return;
+        }
+        boolean js = extension.equals(".js");
+        StringBuilder sb = new StringBuilder();
+        StringBuilder lines = new StringBuilder();
+        long before = 0;
+        for (HtmlIncludes.Tag tag : run) {
+            String name = tag.getValue();
+            String text = StringIO.read(mWwwDir + name);
+            if (!js && text.indexOf("@import") >= 0) {
+                // Imports must come first, and are relative to the stylesheet
+                mReport.append("Not bundled, since ").append(name).append(" uses @import\n");
+                return;
+            }
+            if (js) {
+                text = isMinified(name) ? text : minifyJs(text);
+                sb.append(text).append(";\n");  // In case the file doesn't end its last statement
+            } else {
+                text = relocateUrls(text, name);
+                sb.append(isMinified(name) ? text : minifyCss(text)).append('\n');
+            }
+            long size = new File(mWwwDir + name).length();
+            before += size;
+            lines.append("    ").append(name).append(": ").append(size).append(" bytes\n");
+        }
+
+        int n = js ? ++mScriptBundles : ++mStylesheetBundles;
+        String bundleName = "bundle" + (n == 1 ? "" : "-" + n) + ".min" + extension;
+        StringIO.write(mWwwDir + bundleName, sb.toString());
+        includes.replaceRun(run, bundleName);
+
+        long after = new File(mWwwDir + bundleName).length();
+        mReport.append(bundleName).append(": ").append(run.size()).append(" files, ")
+                .append(before).append(" -> ").append(after).append(" bytes (")
+                .append(before == 0 ? 100 : after * 100 / before).append("%)\n");
+        mReport.append(lines);
+    }
+
+    /** Is <i>value</i> a file in the www directory, rather than on a server? */
+    private boolean isLocal(String value) {
+        if (value.startsWith("/") || value.indexOf(':') >= 0 || value.indexOf('?') >= 0
+                || value.indexOf('#') >= 0) {
+            return false;
+        }
+        return new File(mWwwDir + value).isFile();
+    }
+
+    private static boolean isMinified(String name) {
+        return name.indexOf(".min.") >= 0 || name.indexOf("-min.") >= 0;
+    }
+
+    /**
+     * Make the relative urls in a stylesheet relative to the www directory instead, where the
+     * bundle goes.
+     */
+    static String relocateUrls(String css, String cssPath) {
+        int slash = cssPath.lastIndexOf('/');
+        if (slash < 0) {
+            return css;
+        }
+        String dir = cssPath.substring(0, slash + 1);
+        Matcher m = CSS_URL.matcher(css);
+        StringBuffer sb = new StringBuffer(css.length() + 256);
+        while (m.find()) {
+            String url = m.group(2).trim();
+            if (url.length() > 0 && !url.startsWith("/") && !url.startsWith("#")
+                    && url.indexOf(':') < 0) {
+                url = normalize(dir + url);
+            }
+            m.appendReplacement(sb, Matcher.quoteReplacement("url(" + m.group(1) + url
+                    + m.group(1) + ")"));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    /** Remove "." and "dir/.." segments from a relative path. */
+    private static String normalize(String path) {
+        List<String> segments = new ArrayList<String>();
+        for (String s : path.split("/", -1)) {
+            if (s.equals(".")) {
+                continue;
+            } else if (s.equals("..") && !segments.isEmpty()
+                    && !segments.get(segments.size() - 1).equals("..")) {
+                segments.remove(segments.size() - 1);
+            } else {
+                segments.add(s);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String s : segments) {
+            if (sb.length() > 0) sb.append('/');
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Remove comments and squeeze white space in a stylesheet. Strings are left alone, and a
+     * space is only removed next to a brace, semicolon or comma, where it can't matter.
+     */
+    static String minifyCss(String css) {
+        StringBuilder sb = new StringBuilder(css.length());
+        int length = css.length();
+        boolean space = false;
+        for (int i = 0; i < length; i++) {
+            char c = css.charAt(i);
+            if (c == '/' && i + 1 < length && css.charAt(i + 1) == '*') {
+                int end = css.indexOf("*/", i + 2);
+                end = end < 0 ? length : end + 2;
+                if (i + 2 < length && css.charAt(i + 2) == '!') {   // Keep licences
+                    sb.append(css, i, end).append('\n');
+                } else {
+                    space = true;
+                }
+                i = end - 1;
+            } else if (Character.isWhitespace(c)) {
+                space = true;
+            } else {
+                if (space && sb.length() > 0 && "{};,".indexOf(c) < 0
+                        && "{};,\n".indexOf(sb.charAt(sb.length() - 1)) < 0) {
+                    sb.append(' ');
+                }
+                space = false;
+                if (c == '"' || c == '\'') {
+                    int end = i + 1;
+                    while (end < length && css.charAt(end) != c && css.charAt(end) != '\n') {
+                        end += css.charAt(end) == '\\' ? 2 : 1;
+                    }
+                    end = Math.min(end + 1, length);
+                    sb.append(css, i, end);
+                    i = end - 1;
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Remove comments and squeeze white space in a script, or return it unchanged if that can't
+     * be done safely.
+     */
+    static String minifyJs(String source) {
+        char[] chars = source.toCharArray();
+        IScanner scanner = ToolFactory.createScanner(true, true, false, null);
+        scanner.setSource(chars);
+        StringBuilder sb = new StringBuilder(chars.length);
+        boolean space = false;
+        boolean newLine = false;
+        boolean afterSlash = false;
+        boolean slashOnLine = false;
+        try {
+            for (int token; (token = scanner.getNextToken()) != ITerminalSymbols.TokenNameEOF;) {
+                int start = scanner.getCurrentTokenStartPosition();
+                int end = scanner.getCurrentTokenEndPosition() + 1;
+                if (token == ITerminalSymbols.TokenNameWHITESPACE) {
+                    space = true;
+                    newLine |= hasLineBreak(chars, start, end);
+                    continue;
+                } else if (token == ITerminalSymbols.TokenNameCOMMENT_LINE) {
+                    space = true;
+                    newLine = true;
+                    continue;
+                } else if (token == ITerminalSymbols.TokenNameCOMMENT_BLOCK
+                        || token == ITerminalSymbols.TokenNameCOMMENT_JAVADOC) {
+                    if (end - start < 3 || chars[start + 2] != '!') {
+                        space = true;
+                        newLine |= hasLineBreak(chars, start, end);
+                        continue;
+                    }
+                    // Keep licences, on lines of their own
+                    newLine = sb.length() > 0;
+                }
+                boolean slash = token == ITerminalSymbols.TokenNameDIVIDE
+                        || token == ITerminalSymbols.TokenNameDIVIDE_EQUAL
+                        || token == ITerminalSymbols.TokenNameRegExLiteral;
+                if (sb.length() > 0) {
+                    char last = sb.charAt(sb.length() - 1);
+                    char next = chars[start];
+                    // The scanner looks for the end of a regular expression on the same line, so
+                    // a line with a division on it is never joined to the next
+                    if (newLine && (slashOnLine || ("{;,([:=?!&|<>*%^~\n".indexOf(last) < 0
+                            && "};,)]:?".indexOf(next) < 0))) {
+                        sb.append('\n');
+                        slashOnLine = false;
+                    } else if (space && (afterSlash || slash || needsSpace(last, next))) {
+                        // Spaces next to a slash stay put, in case the scanner took a regular
+                        // expression for a division, or the other way round
+                        sb.append(' ');
+                    }
+                }
+                sb.append(chars, start, end - start);
+                if (token == ITerminalSymbols.TokenNameCOMMENT_BLOCK
+                        || token == ITerminalSymbols.TokenNameCOMMENT_JAVADOC) {
+                    sb.append('\n');
+                    slashOnLine = false;
+                }
+                slashOnLine |= slash;
+                space = false;
+                newLine = false;
+                afterSlash = slash;
+            }
+            String minified = sb.toString();
+            return sameTokens(source, minified) ? minified : source;
+        } catch (InvalidInputException e) {
+            return source;
+        } catch (RuntimeException e) {   // The scanner is not used to arbitrary input
+            return source;
+        }
+    }
+
+    /** Would joining two tokens ending and starting with these make them one? */
+    private static boolean needsSpace(char last, char next) {
+        return (isWordPart(last) && isWordPart(next))
+                || ((last == '+' || last == '-') && last == next)
+                || (Character.isDigit(last) && next == '.');
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isJavaIdentifierPart(c) || c == '\\' || c > 0x7f;
+    }
+
+    private static boolean hasLineBreak(char[] chars, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Do two scripts scan as the same tokens, ignoring comments and white space? */
+    private static boolean sameTokens(String a, String b) throws InvalidInputException {
+        IScanner sa = ToolFactory.createScanner(false, false, false, null);
+        IScanner sb = ToolFactory.createScanner(false, false, false, null);
+        sa.setSource(a.toCharArray());
+        sb.setSource(b.toCharArray());
+        while (true) {
+            int ta = sa.getNextToken();
+            int tb = sb.getNextToken();
+            if (ta != tb) {
+                return false;
+            }
+            if (ta == ITerminalSymbols.TokenNameEOF) {
+                return true;
+            }
+            if (!String.valueOf(sa.getCurrentTokenSource()).equals(
+                    String.valueOf(sb.getCurrentTokenSource()))) {
+                return false;
+            }
+        }
+    }
+}
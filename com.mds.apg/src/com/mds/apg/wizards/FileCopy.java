@@ -7,45 +7,105 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 
 public class FileCopy {
 
+    /** Most bytes handed to a single transferTo(), so that progress keeps moving. */
+    private static final long TRANSFER_CHUNK = 8 * 1024 * 1024;
+
+    /** Most files copied at once. More than this just makes the disk seek. */
+    private static final int MAX_THREADS = 4;
+
+    /** How often to report progress and check for cancellation, in milliseconds. */
+    private static final long POLL_INTERVAL = 100;
+
     public static void recursiveCopy(String fromFileName, String toFileName) throws IOException {
-        copy (fromFileName, toFileName, true, false, null, false);
+        copy (fromFileName, toFileName, true, false, null, false, null);
+    }
+
+    public static void recursiveCopy(String fromFileName, String toFileName, IProgressMonitor monitor)
+            throws IOException {
+        copy (fromFileName, toFileName, true, false, null, false, monitor);
     }
     
     public static void recursiveCopySkipSuffix(String fromFileName, String toFileName, String skip) throws IOException {
-        copy (fromFileName, toFileName, true, false, skip, false);
+        copy (fromFileName, toFileName, true, false, skip, false, null);
+    }
+
+    public static void recursiveCopySkipSuffix(String fromFileName, String toFileName, String skip,
+            IProgressMonitor monitor) throws IOException {
+        copy (fromFileName, toFileName, true, false, skip, false, monitor);
     }
 
     public static void recursiveForceCopy(String fromFileName, String toFileName) throws IOException {
-        copy (fromFileName, toFileName, true, true, null, false);
+        copy (fromFileName, toFileName, true, true, null, false, null);
+    }
+
+    public static void recursiveForceCopy(String fromFileName, String toFileName, IProgressMonitor monitor)
+            throws IOException {
+        copy (fromFileName, toFileName, true, true, null, false, monitor);
     }
 
     public static void forceCopy(String fromFileName, String toFileName) throws IOException{
-        copy (fromFileName, toFileName, false, true, null, false);
+        copy (fromFileName, toFileName, false, true, null, false, null);
     }    
 
     public static void copy(String fromFileName, String toFileName) throws IOException{
-        copy (fromFileName, toFileName, false, false, null, false);
+        copy (fromFileName, toFileName, false, false, null, false, null);
     }
 
     public static void copyDontOverwrite(String fromFileName, String toFileName) throws IOException{
-        copy (fromFileName, toFileName, false, false, null, true);      
+        copy (fromFileName, toFileName, false, false, null, true, null);      
     }
 
+    /**
+     * Copy in two passes. First walk the source, creating directories and checking every file
+     * against the options, so nothing is copied if any check fails. Then copy the files, several
+     * at once, reporting the bytes copied to <i>monitor</i>.
+     */
     private static void copy(String fromFileName, String toFileName, boolean isRecursive, 
-            boolean force, String skipSuffix, boolean dontOverwrite)   throws IOException {
-        
+            boolean force, String skipSuffix, boolean dontOverwrite, IProgressMonitor monitor)
+            throws IOException {
+        List<File[]> files = new ArrayList<File[]>();
+        collect(new File(fromFileName), new File(toFileName), isRecursive, force, skipSuffix,
+                dontOverwrite, files);
+        copyFiles(files, monitor == null ? new NullProgressMonitor() : monitor);
+    }
+
+    /**
+     * Check that <i>fromFile</i> can be copied to <i>toFile</i>, creating any directories that
+     * are needed, and add each file to be copied to <i>files</i> as a pair of source and
+     * destination.
+     */
+    private static void collect(File fromFile, File toFile, boolean isRecursive, 
+            boolean force, String skipSuffix, boolean dontOverwrite, List<File[]> files)
+            throws IOException {
+        String fromFileName = fromFile.getPath();
+        String toFileName = toFile.getPath();
+
         if (skipSuffix != null) {
             int dotSpot = fromFileName.lastIndexOf('.');
             if (dotSpot > 0 && fromFileName.substring(dotSpot).equals(skipSuffix)) {
                 return;
             }
         }
-        
-        File fromFile = new File(fromFileName);
-        File toFile = new File(toFileName);
 
         if (!fromFile.exists())
             throw new IOException("FileCopy: " + "no such source file: "
@@ -58,7 +118,6 @@ public class FileCopy {
                             + toFileName);
                 }
             } else { // create the directory
-                toFile = new File(toFileName);
                 if (!toFile.mkdir()) {
                     throw new IOException("FileCopy: " + "directory Creation Failed: "
                             + toFileName);
@@ -66,7 +125,8 @@ public class FileCopy {
             }                
             String fList[] = fromFile.list();
             for (String s : fList) {
-                copy(fromFileName + "/" + s, toFileName + "/" + s, true, force, skipSuffix, dontOverwrite);
+                collect(new File(fromFile, s), new File(toFile, s), true, force, skipSuffix,
+                        dontOverwrite, files);
             }
             return;
         }
@@ -107,7 +167,131 @@ public class FileCopy {
                 throw new IOException("FileCopy: "
                         + "destination directory is unwriteable: " + parent);
         }
-        coreStreamCopy(new FileInputStream(fromFile), toFile);
+        files.add(new File[] { fromFile, toFile });
+    }
+
+    /**
+     * Copy each pair of source and destination in <i>files</i>. Only this thread talks to
+     * <i>monitor</i>; the copying threads just add to a count of bytes.
+     */
+    private static void copyFiles(List<File[]> files, IProgressMonitor monitor) throws IOException {
+        long totalBytes = 0;
+        for (File[] pair : files) {
+            totalBytes += pair[0].length();
+        }
+        monitor.beginTask("Copying files", (int) Math.max(1, totalBytes / 1024));
+        try {
+            final AtomicLong copied = new AtomicLong();
+            if (files.size() <= 1) {
+                for (File[] pair : files) {
+                    channelCopy(pair[0], pair[1], copied);
+                }
+                return;
+            }
+            int threads = Math.min(files.size(), 
+                    Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+            ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "FileCopy");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            try {
+                CompletionService<Void> done = new ExecutorCompletionService<Void>(executor);
+                for (final File[] pair : files) {
+                    done.submit(new Runnable() {
+                        public void run() {
+                            try {
+                                channelCopy(pair[0], pair[1], copied);
+                            } catch (IOException e) {
+                                throw new CopyFailure(e);
+                            }
+                        }
+                    }, null);
+                }
+                long reportedKb = 0;
+                for (int remaining = files.size(); remaining > 0;) {
+                    Future<Void> f = done.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                    if (f != null) {
+                        remaining--;
+                        f.get();
+                    }
+                    long kb = copied.get() / 1024;
+                    monitor.worked((int) (kb - reportedKb));
+                    reportedKb = kb;
+                    if (monitor.isCanceled()) {
+                        throw new OperationCanceledException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperationCanceledException();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof CopyFailure) {
+                    throw ((CopyFailure) e.getCause()).getCause();
+                }
+                throw new IOException("FileCopy: " + e.getCause());
+            } finally {
+                // Anything not yet started is abandoned.
+                executor.shutdownNow();
+            }
+        } finally {
+            monitor.done();
+        }
+    }
+
+    /**
+     * Carries an IOException out of a Runnable.
+     */
+    @SuppressWarnings("serial")
+    private static class CopyFailure extends RuntimeException {
+        CopyFailure(IOException e) {
+            super(e);
+        }
+
+        @Override
+        public IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    /**
+     * Copy a single file, leaving it to the operating system to move the bytes where it can.
+     * Adds the bytes copied to <i>copied</i> as it goes.
+     */
+    private static void channelCopy(File fromFile, File toFile, AtomicLong copied) throws IOException {
+        FileInputStream from = null;
+        FileOutputStream to = null;
+        try {
+            from = new FileInputStream(fromFile);
+            to = new FileOutputStream(toFile);
+            FileChannel in = from.getChannel();
+            FileChannel out = to.getChannel();
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long n = in.transferTo(position, Math.min(size - position, TRANSFER_CHUNK), out);
+                if (n <= 0) {
+                    break; // the file shrank underneath us
+                }
+                position += n;
+                copied.addAndGet(n);
+            }
+        } finally {
+            if (from != null)
+                try {
+                    from.close();
+                } catch (IOException e) {
+                    ;
+                }
+            if (to != null)
+                try {
+                    to.close();
+                } catch (IOException e) {
+                    ;
+                }
+        }
     }
     
     public static void coreStreamCopy(InputStream from, File toFile) throws IOException {
@@ -138,39 +322,77 @@ public class FileCopy {
     
     public static void createPhonegapJs(String fromDirName, String toFileName)
     throws IOException {
+        assemble(phonegapJsParts(fromDirName), new File(toFileName));
+    }
+
+    /**
+     * The files which are concatenated to make phonegap.js, in order: phonegap.js.base and then
+     * every .js file in the directory, sorted by name. With cordova, there is just the fully
+     * constructed cordova.android.js.
+     */
+    static List<File> phonegapJsParts(String fromDirName) throws IOException {
         File fromFile = new File(fromDirName);
-        File toFile = new File(toFileName);
 
         if (!fromFile.exists()) {
             throw new IOException("createPhonegapJs: " + "no such source file: "
                     + fromDirName);
         }
-        FileOutputStream to = new FileOutputStream(toFile);
-        try {
-            to = new FileOutputStream(toFile);
-            File base = new File(fromDirName + "/" + "phonegap.js.base");
-            if (!base.exists()) { 
-                // with cordova, the file is a fully constructed cordova.android.js
-                base = new File(fromDirName + "/" + "cordova.android.js");
-                to = appendStream(base, to);
-                return;
+        List<File> parts = new ArrayList<File>();
+        File base = new File(fromFile, "phonegap.js.base");
+        if (!base.exists()) { 
+            // with cordova, the file is a fully constructed cordova.android.js
+            parts.add(new File(fromFile, "cordova.android.js"));
+            return parts;
+        }
+        parts.add(base);
+
+        String fList[] = fromFile.list();
+        Arrays.sort(fList);
+        for (String s : fList) {   // append the .js files
+            int i = s.lastIndexOf(".js");
+            if (i > 0 && i == s.length() - 3) {
+                parts.add(new File(fromFile, s));
             }
-            to = appendStream(base, to);
+        }
+        return parts;
+    }
 
-            String fList[] = fromFile.list();
-            for (String s : fList) {   // append the .js files
-                int i = s.lastIndexOf(".js");
-                if (i > 0 && i == s.length() - 3) {
-                    to = appendStream(new File(fromDirName + "/" + s), to);
+    /**
+     * Concatenate <i>parts</i> into <i>toFile</i>. Each part is handed to the output with
+     * transferTo(), rather than being copied through a buffer. The parts are not mapped: a mapped
+     * file stays locked on Windows until it is garbage collected, which would keep the PhoneGap
+     * install directory from being deleted or upgraded.
+     */
+    static void assemble(List<File> parts, File toFile) throws IOException {
+        FileOutputStream to = new FileOutputStream(toFile);
+        try {
+            FileChannel out = to.getChannel();
+            for (File part : parts) {
+                FileInputStream from = new FileInputStream(part);
+                try {
+                    FileChannel in = from.getChannel();
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        long n = in.transferTo(position, Math.min(size - position, TRANSFER_CHUNK), out);
+                        if (n <= 0) {
+                            break; // the file shrank underneath us
+                        }
+                        position += n;
+                    }
+                } finally {
+                    try {
+                        from.close();
+                    } catch (IOException e) {
+                        ;
+                    }
                 }
             }
         } finally {
-            if (to != null) {
-                try {
-                    to.close();
-                } catch (IOException e) {
-                    ;
-                }
+            try {
+                to.close();
+            } catch (IOException e) {
+                ;
             }
         }
     }
@@ -179,30 +401,4 @@ public class FileCopy {
         File file = new File(fileName);
         return file.exists();
     }
-    
-    private static FileOutputStream appendStream(File fromFile, FileOutputStream to) throws IOException {
-        
-        FileInputStream from = null;
-        try {
-            from = new FileInputStream(fromFile);
-            byte[] buffer = new byte[4096];
-            int bytesRead;
-
-            while ((bytesRead = from.read(buffer)) != -1)
-                to.write(buffer, 0, bytesRead); // write
-        } finally {
-            if (from != null) {
-                try {
-                    from.close();
-                } catch (IOException e) {
-                    ;
-                }
-            }
-        }
-        return to;
-    }
 }
-
-
-
-
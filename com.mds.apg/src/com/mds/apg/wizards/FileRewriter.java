@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2012 Mobile Developer Solutions
+ *
+ * Licensed under the Eclipse Public License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.eclipse.org/org/documents/epl-v10.php
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mds.apg.wizards;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Replaces a set of strings in a file in a single pass. All of the targets are combined into one
+ * regular expression, so the file is scanned once however many there are. At each position the
+ * earliest added target which matches wins, and replaced text is not looked at again.
+ *
+ * Replacements are meant to be independent of each other: unlike a chain of replace calls, one
+ * never sees the output of another.
+ *
+ * The file is rewritten as a stream: only the text which a target may still span is held.
+ */
+public class FileRewriter {
+
+    /** How many characters are read at a time. */
+    private static final int CHUNK = 8192;
+
+    private final List<String> mTargets = new ArrayList<String>();
+    private final List<String> mReplacements = new ArrayList<String>();
+    private Pattern mCombined;
+    private int mLongest;      // the length of the longest target
+
+    /**
+     * Replace every occurrence of <i>target</i>, as {@link String#replace(CharSequence, CharSequence)}
+     * does.
+     */
+    public FileRewriter replace(String target, String replacement) {
+        if (target.length() == 0) {
+            throw new IllegalArgumentException("Nothing to replace");
+        }
+        mTargets.add(target);
+        mReplacements.add(replacement);
+        mCombined = null;
+        return this;
+    }
+
+    /**
+     * Make every replacement in a file, streaming it into a temporary file alongside which
+     * replaces it if anything changed. The file is read and written once, however many
+     * replacements there are, and its line endings are kept.
+     *
+     * @return whether anything changed
+     */
+    public boolean rewrite(String fileName) throws IOException {
+        File file = new File(fileName);
+        File temp = new File(file.getPath() + ".tmp");
+        boolean changed = false;
+        boolean written = false;
+        try {
+            Reader reader = new FileReader(file);
+            try {
+                Writer writer = new FileWriter(temp);
+                try {
+                    changed = rewrite(reader, writer);
+                } finally {
+                    writer.close();
+                }
+            } finally {
+                reader.close();
+            }
+            written = true;
+        } finally {
+            if (!written || !changed) {
+                temp.delete();
+            }
+        }
+        if (changed) {
+            StringIO.replace(temp, file);
+        }
+        return changed;
+    }
+
+    /**
+     * Make every replacement in the text read from <i>in</i>, writing the result to <i>out</i>.
+     *
+     * Matching is done on a window of the text. A match, or a failed search, which reached the
+     * end of the window might turn out differently with more text, so then more is read and the
+     * search is done again; otherwise everything before the search position is final and is
+     * written out.
+     *
+     * @return whether anything was replaced
+     */
+    private boolean rewrite(Reader in, Writer out) throws IOException {
+        boolean changed = false;
+        char[] chunk = new char[CHUNK];
+        StringBuilder window = new StringBuilder(2 * CHUNK);
+        int written = 0;   // the end of the text written out, and where to search next
+        boolean eof = false;
+        while (!eof) {
+            int n = in.read(chunk);
+            if (n < 0) {
+                eof = true;
+            } else {
+                window.append(chunk, 0, n);
+            }
+            int end = window.length();
+            if (!mTargets.isEmpty()) {
+                Matcher m = combined().matcher(window);
+                m.region(written, window.length());
+                boolean pending = false;
+                while (m.find()) {
+                    if (m.hitEnd() && !eof) {
+                        pending = true;
+                        break;
+                    }
+                    out.append(window, written, m.start());
+                    out.append(mReplacements.get(targetOf(m)));
+                    written = m.end();
+                    changed = true;
+                }
+                if (pending) {
+                    end = m.start();
+                } else if (m.hitEnd() && !eof) {
+                    // A target may begin in the last few characters; keep them for next time.
+                    end = Math.max(written, window.length() - mLongest + 1);
+                }
+            }
+            out.append(window, written, end);
+            window.delete(0, end);
+            written = 0;
+        }
+        return changed;
+    }
+
+    /**
+     * Return the index of the target which made the match <i>m</i>.
+     */
+    private int targetOf(Matcher m) {
+        for (int i = 0; i < mTargets.size(); i++) {
+            if (m.start(i + 1) != -1) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("No target matched " + m.group());
+    }
+
+    /**
+     * Build the combined pattern, with each target quoted and wrapped in a group of its own.
+     */
+    private Pattern combined() {
+        if (mCombined == null) {
+            StringBuilder sb = new StringBuilder();
+            mLongest = 0;
+            for (String target : mTargets) {
+                if (sb.length() > 0) sb.append('|');
+                sb.append('(').append(Pattern.quote(target)).append(')');
+                mLongest = Math.max(mLongest, target.length());
+            }
+            mCombined = Pattern.compile(sb.toString());
+        }
+        return mCombined;
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright (C) 2012 Mobile Developer Solutions
+ *
+ * Licensed under the Eclipse Public License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.eclipse.org/org/documents/epl-v10.php
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mds.apg.wizards;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Points the script and stylesheet includes of an index.html at the libraries the wizard adds.
+ *
+ * The html is tokenized once, to find each &lt;script src&gt;, each &lt;link href&gt; and the
+ * &lt;/head&gt; tag; comments, and the contents of script and style elements, are skipped. Each
+ * call to {@link #updatePath} or {@link #replaceRun} then works on those tags, and
+ * {@link #toString()} applies all of the changes in a single copy of the html.
+ */
+class HtmlIncludes {
+
+    private static final int SCRIPT = 0;
+    private static final int LINK = 1;
+    private static final int HEAD_END = 2;
+
+    /** An include in the html. */
+    static final class Tag {
+        final int kind;
+        String value;          // The src or href
+        final int valueStart;  // Where the value is in the html, or -1 if this tag is new
+        final int valueEnd;
+        final int anchor;      // Where a new tag to go before this one is inserted
+        int start;             // Where the tag begins
+        int end;               // Just after the tag, or after the end tag of a script
+        boolean changed;
+        boolean removed;
+
+        Tag(int kind, String value, int valueStart, int valueEnd, int anchor) {
+            this.kind = kind;
+            this.value = value;
+            this.valueStart = valueStart;
+            this.valueEnd = valueEnd;
+            this.anchor = anchor;
+        }
+
+        boolean isNew() {
+            return valueStart < 0;
+        }
+
+        /** The src or href of the include. */
+        String getValue() {
+            return value;
+        }
+    }
+
+    private final String mHtml;
+    private final String mIndexHtmlDirectory;
+    private final List<Tag> mTags = new ArrayList<Tag>();   // In document order
+
+    /**
+     * @param html The contents of index.html
+     * @param indexHtmlDirectory Where index.html came from, for error messages
+     */
+    HtmlIncludes(String html, String indexHtmlDirectory) {
+        mHtml = html;
+        mIndexHtmlDirectory = indexHtmlDirectory;
+        tokenize();
+    }
+
+    /**
+     * Make the include of a library refer to it within <i>path</i>, adding an include if there
+     * isn't one. The minified form of the library is preferred, then the debug form, then the
+     * plain one. A new include goes before the first include of the same kind, so libraries
+     * added later end up loaded earlier.
+     *
+     * @param fileName The library name, such as "jquery.mobile-1.1.0"
+     * @param extension ".js" or ".css"
+     * @param path The directory to refer to, such as "jquery.mobile/"
+     * @param insertSuffix If not null, used in place of <i>extension</i> in a new include
+     */
+    void updatePath(String fileName, String extension, String path, String insertSuffix)
+            throws IOException {
+        int kind;
+        if (extension.equals(".js")) {
+            kind = SCRIPT;
+        } else if (extension.equals(".css")) {
+            kind = LINK;
+        } else {
+            throw new IllegalArgumentException("updatePath called with unsupported extension");
+        }
+
+        // Found it?
+        String[] candidates = { fileName + ".min" + extension, fileName + ".min",
+                fileName + "-debug" + extension, fileName + extension };
+        for (int c = 0; c < candidates.length; c++) {
+            boolean anywhere = c == 1;  // No extension ok for min to get around eclipse issues with min files
+            for (Tag tag : mTags) {
+                if (tag.kind != kind) continue;
+                int index = find(tag.value, candidates[c], anywhere);
+                if (index >= 0) {
+                    tag.value = path + tag.value.substring(index);
+                    tag.changed = true;
+                    return;
+                }
+            }
+        }
+
+        // Must add a new include, before the first of the same kind, then before the first
+        // script for a stylesheet, and otherwise at the end of the head
+        ListIterator<Tag> before = findInsertionPoint(kind == SCRIPT ? new String[] { ".js" }
+                : new String[] { ".css", ".js" });
+        if (before == null) {
+            throw new IOException("Supplied index.html in " + mIndexHtmlDirectory +
+                    "  is missing the </head> tag");
+        }
+        Tag next = before.next();
+        before.previous();
+        String name = fileName + (insertSuffix != null ? insertSuffix : extension);
+        Tag tag = new Tag(kind, path + name, -1, -1, next.anchor);
+        tag.changed = true;
+        before.add(tag);
+    }
+
+    /**
+     * Return the includes of the html, in order, whose value ends with <i>extension</i>, in
+     * runs which follow each other with only white space between. Includes already changed are
+     * left out.
+     *
+     * @param extension ".js" for scripts or ".css" for stylesheets
+     */
+    List<List<Tag>> getRuns(String extension) {
+        int kind = extension.equals(".js") ? SCRIPT : LINK;
+        List<List<Tag>> runs = new ArrayList<List<Tag>>();
+        List<Tag> run = null;
+        Tag previous = null;
+        for (Tag tag : mTags) {
+            if (tag.kind != kind || tag.changed || tag.isNew() || !tag.value.endsWith(extension)) {
+                previous = null;
+                continue;
+            }
+            if (previous == null || mHtml.substring(previous.end, tag.start).trim().length() > 0) {
+                run = new ArrayList<Tag>();
+                runs.add(run);
+            }
+            run.add(tag);
+            previous = tag;
+        }
+        return runs;
+    }
+
+    /**
+     * Replace a run of includes, as returned by {@link #getRuns(String)}, with a single include
+     * of <i>value</i>.
+     */
+    void replaceRun(List<Tag> run, String value) {
+        Tag first = run.get(0);
+        first.value = value;
+        first.changed = true;
+        for (Tag tag : run.subList(1, run.size())) {
+            tag.changed = true;
+            tag.removed = true;
+        }
+    }
+
+    /**
+     * Return the html with every change made.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(mHtml.length() + 512);
+        int copied = 0;
+        for (Tag tag : mTags) {
+            if (!tag.changed) continue;
+            if (tag.removed) {
+                sb.append(mHtml, copied, tag.anchor);
+                copied = tag.end;
+            } else if (tag.isNew()) {
+                sb.append(mHtml, copied, tag.anchor);
+                copied = tag.anchor;
+                if (tag.kind == SCRIPT) {
+                    sb.append("\n      <script type=\"text/javascript\" src=\"").append(tag.value)
+                            .append("\"></script>");
+                } else {
+                    sb.append("\n      <link rel=\"stylesheet\" href=\"").append(tag.value)
+                            .append("\" type=\"text/css\">");
+                }
+            } else {
+                sb.append(mHtml, copied, tag.valueStart);
+                sb.append(tag.value);
+                copied = tag.valueEnd;
+            }
+        }
+        sb.append(mHtml, copied, mHtml.length());
+        return sb.toString();
+    }
+
+    /**
+     * Return where <i>name</i> starts within <i>value</i>, or -1. It must start the value or
+     * follow a "/", and must end the value unless <i>anywhere</i> is set.
+     */
+    private static int find(String value, String name, boolean anywhere) {
+        int index = anywhere ? value.indexOf(name) : value.length() - name.length();
+        while (index >= 0) {
+            if ((anywhere || value.endsWith(name)) && (index == 0 || value.charAt(index - 1) == '/')) {
+                return index;
+            }
+            if (!anywhere) break;
+            index = value.indexOf(name, index + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Return an iterator positioned before the first include whose value ends with the first of
+     * <i>extensions</i>, then the second, and so on; or before the end of the head. Return null
+     * if there is none of these.
+     */
+    private ListIterator<Tag> findInsertionPoint(String[] extensions) {
+        for (String extension : extensions) {
+            int kind = extension.equals(".js") ? SCRIPT : LINK;
+            for (ListIterator<Tag> it = mTags.listIterator(); it.hasNext();) {
+                Tag tag = it.next();
+                if (tag.kind == kind && tag.value.endsWith(extension)) {
+                    it.previous();
+                    return it;
+                }
+            }
+        }
+        for (ListIterator<Tag> it = mTags.listIterator(); it.hasNext();) {
+            if (it.next().kind == HEAD_END) {
+                it.previous();
+                return it;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find every &lt;script src&gt;, &lt;link href&gt; and the first &lt;/head&gt;.
+     */
+    private void tokenize() {
+        String html = mHtml;
+        int length = html.length();
+        boolean headEnded = false;
+        int i = 0;
+        while ((i = html.indexOf('<', i)) >= 0) {
+            int tagStart = i;
+            if (html.startsWith("<!--", i)) {
+                int end = html.indexOf("-->", i + 4);
+                i = end < 0 ? length : end + 3;
+                continue;
+            }
+            if (html.startsWith("<!", i) || html.startsWith("<?", i)) {
+                int end = html.indexOf('>', i);
+                i = end < 0 ? length : end + 1;
+                continue;
+            }
+            boolean endTag = i + 1 < length && html.charAt(i + 1) == '/';
+            int nameStart = i + (endTag ? 2 : 1);
+            int p = nameStart;
+            while (p < length && Character.isLetterOrDigit(html.charAt(p))) p++;
+            if (p == nameStart) {   // Just a "<"
+                i++;
+                continue;
+            }
+            String name = html.substring(nameStart, p).toLowerCase();
+            if (endTag) {
+                if (name.equals("head") && !headEnded) {
+                    mTags.add(new Tag(HEAD_END, null, -1, -1, anchorBefore(tagStart)));
+                    headEnded = true;
+                }
+                int end = html.indexOf('>', p);
+                i = end < 0 ? length : end + 1;
+                continue;
+            }
+
+            // Attributes
+            String wanted = name.equals("script") ? "src" : name.equals("link") ? "href" : null;
+            int valueStart = -1;
+            int valueEnd = -1;
+            while (p < length) {
+                char ch = html.charAt(p);
+                if (ch == '>') {
+                    p++;
+                    break;
+                }
+                if (Character.isWhitespace(ch) || ch == '/') {
+                    p++;
+                    continue;
+                }
+                int attrStart = p;
+                while (p < length && "\t\n\f\r />=".indexOf(html.charAt(p)) < 0) p++;
+                String attr = html.substring(attrStart, p);
+                while (p < length && Character.isWhitespace(html.charAt(p))) p++;
+                if (p >= length || html.charAt(p) != '=') continue;
+                p++;
+                while (p < length && Character.isWhitespace(html.charAt(p))) p++;
+                int start;
+                int end;
+                if (p < length && (html.charAt(p) == '"' || html.charAt(p) == '\'')) {
+                    start = p + 1;
+                    end = html.indexOf(html.charAt(p), start);
+                    if (end < 0) end = length;
+                    p = Math.min(end + 1, length);
+                } else {
+                    start = p;
+                    while (p < length && !Character.isWhitespace(html.charAt(p))
+                            && html.charAt(p) != '>') p++;
+                    end = p;
+                }
+                if (wanted != null && valueStart < 0 && attr.equalsIgnoreCase(wanted)) {
+                    valueStart = start;
+                    valueEnd = end;
+                }
+            }
+            Tag tag = null;
+            if (valueStart >= 0) {
+                tag = new Tag(name.equals("script") ? SCRIPT : LINK,
+                        html.substring(valueStart, valueEnd), valueStart, valueEnd,
+                        anchorBefore(tagStart));
+                tag.start = tagStart;
+                tag.end = p;
+                mTags.add(tag);
+            }
+            if (name.equals("script") || name.equals("style")) {   // Skip the contents
+                int end = indexOfIgnoreCase(html, "</" + name, p);
+                p = end < 0 ? length : end;
+                if (tag != null && end >= 0) {
+                    end = html.indexOf('>', end);
+                    tag.end = end < 0 ? length : end + 1;
+                }
+            }
+            i = p;
+        }
+    }
+
+    /**
+     * Where to insert a new line before the tag at <i>tagStart</i>: after the end of the
+     * previous line.
+     */
+    private int anchorBefore(int tagStart) {
+        int anchor = tagStart;
+        while (anchor > 0 && Character.isWhitespace(mHtml.charAt(anchor - 1))) anchor--;
+        return anchor;
+    }
+
+    private static int indexOfIgnoreCase(String s, String target, int from) {
+        for (int i = from; i <= s.length() - target.length(); i++) {
+            if (s.regionMatches(true, i, target, 0, target.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
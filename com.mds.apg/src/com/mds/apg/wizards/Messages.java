@@ -10,6 +10,8 @@ public class Messages extends NLS {
 	public static String AndroidPgProjectCreationPage_with_SenchaTouch;
 	public static String AndroidPgProjectNewWizard_Error_Case_Variant_Exists;
 	public static String AndroidPgProjectNewWizard_Title;
+	public static String PageInitContents_BundleAssets;
+	public static String PageInitContents_BundleAssetsTooltip;
 	public static String PageInitContents_ErrorIndexHTMLNotFound;
 	public static String PageInitContents_ErrorLocationEmpty;
 	public static String PageInitContents_ErrorLocationInvalid;
@@ -44,13 +44,15 @@ public class PageInfo {
     protected final String mSenchaDirectory;      // Sencha Touch install location
     protected final boolean mSenchaChecked;       // Using Sencha
     protected final boolean mSenchaKitchenSink;   // Do Sencha Kitchen Sink app
+    protected final boolean mBundleAssets;        // Minify and bundle scripts and stylesheets
     
     public PageInfo(String sourceDirectory, String phonegapDirectory, boolean fromGitHub, boolean isCordova, boolean packagedPhonegap,
             String installAndroidDirectory, String installExampleDirectory,
             String phonegapJs, String phonegapJar, String phonegapVersion, String contentSelection, boolean pureImport, String destinationDirectory, 
             IProject androidProject, boolean jqmChecked, String jqmDirectory, boolean useJqmDemo,
             String jqmVersion, 
-            String senchaDirectory, boolean senchaChecked, boolean senchaKitchenSink) {
+            String senchaDirectory, boolean senchaChecked, boolean senchaKitchenSink,
+            boolean bundleAssets) {
         mSourceDirectory = sourceDirectory;
         mPhonegapDirectory = phonegapDirectory;
         mFromGitHub = fromGitHub;
@@ -72,5 +74,6 @@ public class PageInfo {
         mSenchaDirectory = senchaDirectory;
         mSenchaChecked = senchaChecked;
         mSenchaKitchenSink = senchaKitchenSink;
+        mBundleAssets = bundleAssets;
     }
 }
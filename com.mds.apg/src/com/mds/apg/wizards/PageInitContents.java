@@ -36,11 +36,13 @@ public final class PageInitContents extends WizardSection{
     private final static String SOURCE_DIR = com.mds.apg.Activator.PLUGIN_ID + ".source";  //$NON-NLS-1$
     private final static String CONTENT_SELECTION = com.mds.apg.Activator.PLUGIN_ID + ".contentselection"; //$NON-NLS-1$
     private final static String PURE_IMPORT = com.mds.apg.Activator.PLUGIN_ID + ".pureimport"; //$NON-NLS-1$
+    private final static String BUNDLE_ASSETS = com.mds.apg.Activator.PLUGIN_ID + ".bundleassets"; //$NON-NLS-1$
 
     /** Last user-browsed location */
     private String mLocationCache;  
     private String mContentSelection;  // example, minimal, or user
     private boolean mPureImport;
+    private boolean mBundleAssets;
     
     // widgets
 
@@ -62,6 +64,7 @@ public final class PageInitContents extends WizardSection{
      * [radio] Use example source from phonegap directory
      * [radio] Create project from existing sources
      * Location [text field] [browse button]
+     * [check] Minify and bundle scripts and stylesheets
      *
      * @param parent the parent composite
      */
@@ -123,6 +126,24 @@ public final class PageInitContents extends WizardSection{
         existing_project_radio.addSelectionListener(location_listener);
         pureImport.addSelectionListener(location_listener);
         
+        // Check box to minify and bundle the scripts and stylesheets that index.html includes
+        
+        final Button bundleAssets = new Button(group, SWT.CHECK);
+        bundleAssets.setText(Messages.PageInitContents_BundleAssets);
+        bundleAssets.setToolTipText(Messages.PageInitContents_BundleAssetsTooltip);
+        mBundleAssets = doGetPreferenceStore().getString(BUNDLE_ASSETS) != ""; //$NON-NLS-1$
+        bundleAssets.setSelection(mBundleAssets);
+        bundleAssets.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent e) {
+                super.widgetSelected(e);
+                mBundleAssets = bundleAssets.getSelection();
+                doGetPreferenceStore().setValue(BUNDLE_ASSETS, mBundleAssets ? "true" : ""); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        });
+        
+        new Label(group, SWT.NONE); // dummy to force new line
+        
         Composite location_group = new Composite(parent, SWT.NONE);
         location_group.setLayout(new GridLayout(3, /* num columns */
                 false /* columns of not equal size */));
@@ -170,6 +191,10 @@ public final class PageInitContents extends WizardSection{
         return mPureImport;
     }
     
+    protected boolean isBundleAssets() {
+        return mBundleAssets;
+    }
+    
     void locationVisibility(boolean v) {
         mLocationLabel.setVisible(v);
         mLocationPathField.setVisible(v);
@@ -29,6 +29,11 @@ import org.eclipse.swt.widgets.Group;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Text;
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.mds.apg.ResourceCatalog;
 
 public final class PagePhonegapPathSet extends WizardSection {
 
@@ -37,6 +42,9 @@ public final class PagePhonegapPathSet extends WizardSection {
     private final static String PG_USE_INSTALLED = com.mds.apg.Activator.PLUGIN_ID + ".pguseinstalled"; //$NON-NLS-1$
     private final static String PG_VERSION = com.mds.apg.Activator.PLUGIN_ID + ".pgversion"; //$NON-NLS-1$
     
+    /** Where the packaged versions of PhoneGap are in the plugin */
+    private final static String PACKAGED_DIR = "resources/phonegap"; //$NON-NLS-1$
+    
     /** Last user-browsed location, static so that it be remembered for the whole session */ 
     private static String sPhonegapPathCache = ""; //$NON-NLS-1$
     
@@ -55,6 +63,9 @@ public final class PagePhonegapPathSet extends WizardSection {
     private Composite mVersionGroup;
     private Combo mVersion;
     
+    // The files packaged in the plugin, or null if the catalog couldn't be read
+    private ResourceCatalog mCatalog;
+    
     PagePhonegapPathSet(AndroidPgProjectCreationPage wizardPage, Composite parent) {
         super(wizardPage);
         sPhonegapPathCache = doGetPreferenceStore().getString(PHONEGAP_DIR);  
@@ -96,13 +107,13 @@ public final class PagePhonegapPathSet extends WizardSection {
         mVersion = new Combo(mVersionGroup, SWT.VERTICAL |
                 SWT.DROP_DOWN | SWT.BORDER | SWT.READ_ONLY);
         
-        mVersion.add("1.4.1"); //$NON-NLS-1$
-        mVersion.add("1.5.0"); //$NON-NLS-1$
-        mVersion.add("1.6.1"); //$NON-NLS-1$
-        mVersion.add("1.9.0"); //$NON-NLS-1$
+        List<String> versions = packagedVersions();
+        for (String v : versions) {
+            mVersion.add(v);
+        }
         String cacheVersion = doGetPreferenceStore().getString(PG_VERSION);
-        if (cacheVersion == "") {
-            mVersion.setText("1.4.1");
+        if (cacheVersion == "" || !versions.contains(cacheVersion)) {
+            mVersion.setText(versions.get(0));
         } else {
             mVersion.setText(cacheVersion);
         }
@@ -196,6 +207,34 @@ public final class PagePhonegapPathSet extends WizardSection {
         return mIsCordova;
     }
     
+    /**
+     * Return the versions of PhoneGap packaged in the plugin, from its resource catalog, so the
+     * plugin needn't be searched for them.
+     */
+    private List<String> packagedVersions() {
+        try {
+            ResourceCatalog catalog = com.mds.apg.Activator.getDefault().getResourceCatalog();
+            List<String> versions = catalog.getVersions(PACKAGED_DIR);
+            if (!versions.isEmpty()) {
+                mCatalog = catalog;
+                return versions;
+            }
+        } catch (IOException e) {
+            // Fall back on the versions packaged when this was written
+        }
+        return Arrays.asList("1.4.1", "1.5.0", "1.6.1", "1.9.0"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+    }
+    
+    /**
+     * A packaged version is Cordova if it has a cordova jar, rather than a phonegap one
+     */
+    private boolean isPackagedCordova(String version) {
+        if (mCatalog == null) {
+            return !version.equals("1.4.1"); //$NON-NLS-1$
+        }
+        return mCatalog.getEntry(PACKAGED_DIR + "/" + version + "/cordova-" + version + ".jar") != null; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+    
     /**
      * Enables or disable the PhoneGap location widgets depending on the user selection:
      * the location path is enabled/disabled based on the radio selection 
@@ -228,7 +267,7 @@ public final class PagePhonegapPathSet extends WizardSection {
         mIsCordova = false;
         if (useFromPackaged()) {  // no validation necessary
             String version = getPhonegapVersion();
-            mIsCordova = !version.equals("1.4.1");
+            mIsCordova = isPackagedCordova(version);
             doGetPreferenceStore().setValue(PG_VERSION, version);
             return AndroidPgProjectCreationPage.MSG_NONE;
         }
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2012 Mobile Developer Solutions
+ *
+ * Licensed under the Eclipse Public License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.eclipse.org/org/documents/epl-v10.php
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mds.apg.wizards;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Assembled phonegap.js files, kept in the plugin's state area. A PhoneGap checkout from GitHub
+ * has phonegap.js in pieces, which only need putting together once for each version: each
+ * assembly is named for a digest of the names, sizes and modification times of its pieces, so a
+ * different version, or an updated checkout, gets an assembly of its own.
+ */
+class PhonegapJsCache {
+
+    /** How many assemblies to keep. The least recently used go first. */
+    private static final int KEEP = 8;
+
+    /**
+     * Return an assembled phonegap.js for the pieces in <i>fromDirName</i>, assembling it if
+     * this version hasn't been seen before.
+     */
+    static synchronized File get(String fromDirName) throws IOException {
+        List<File> parts = FileCopy.phonegapJsParts(fromDirName);
+        File dir = com.mds.apg.Activator.getDefault().getStateLocation().append("phonegapjs").toFile();
+        File cached = new File(dir, fingerprint(parts) + ".js");
+        if (cached.isFile()) {
+            cached.setLastModified(System.currentTimeMillis());
+            return cached;
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("PhonegapJsCache: " + "directory Creation Failed: " + dir);
+        }
+        File temp = new File(dir, cached.getName() + ".partial");
+        FileCopy.assemble(parts, temp);
+        if (!temp.renameTo(cached)) {
+            temp.delete();
+            throw new IOException("PhonegapJsCache: " + "could not create " + cached);
+        }
+        prune(dir);
+        return cached;
+    }
+
+    private static String fingerprint(List<File> parts) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (File part : parts) {
+                String id = part.getCanonicalPath() + "|" + part.length() + "|" + part.lastModified() + "\n";
+                digest.update(id.getBytes("UTF-8"));
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("PhonegapJsCache: " + e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IOException("PhonegapJsCache: " + e);
+        }
+    }
+
+    private static void prune(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null || files.length <= KEEP) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            public int compare(File a, File b) {
+                long diff = b.lastModified() - a.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (int i = KEEP; i < files.length; i++) {
+            files[i].delete();
+        }
+    }
+}
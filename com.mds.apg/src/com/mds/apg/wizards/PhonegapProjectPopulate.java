@@ -28,12 +28,14 @@ import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.Enumeration;
 
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
@@ -76,15 +78,21 @@ class PhonegapProjectPopulate {
     /**
      * Driver for the various tasks to add phonegap. 
      * 1. Update the main java file to load index.html 
-     * 2. Get the phonegap.jar and update the classpath
+     * 2. Get the phonegap.jar
      * 3. Get the user's sources into the android project 
      * 4. Handle project add-ins like Sencha and JQuery Mobile
      * 5. Update the AndroidManifest file 
      * 6. Fill the res directory with drawables and layout
-     * 7. Update the project nature so that JavaScript files are recognize 
+     * 6a. Optionally, minify and bundle the scripts and stylesheets index.html includes
+     * 7. Update the classpath, and the project nature so that JavaScript files are recognized
      * 8. Refresh the project with the updated disc files 
      * 9. Do a clean build - TODO is clean build still necessary with ADT 8.0.1?
      * 
+     * Steps 1 to 6 write to different parts of the project, so they run at the same time where
+     * they can; 3 and 4 each update index.html in turn, and 1 must see the src directory before
+     * 2 copies PhoneGap sources into it. They only touch files on disc: the project folders
+     * they need are made first, and 7 is done in a single workspace operation once they finish.
+     * 
      * @param monitor An existing monitor.
      * @throws InvocationTargetException to wrap any unmanaged exception and
      *             return it to the calling thread. The method can fail if it
@@ -95,19 +103,109 @@ class PhonegapProjectPopulate {
     static private void updateProjectWithPhonegap(IProgressMonitor monitor, PageInfo pageInfo)
             throws CoreException, IOException, URISyntaxException {
 
-        updateJavaMain(pageInfo);
-        getPhonegapJar(monitor, pageInfo);
-        getWWWSources(monitor, pageInfo);
-        if (pageInfo.mJqmChecked)
-            setupJqm(monitor, pageInfo);
-        if (pageInfo.mSenchaChecked)
-            setupSencha(monitor, pageInfo);
-        phonegapizeAndroidManifest(pageInfo);
-        getResFiles(monitor, pageInfo);
-        IProject newAndroidProject = pageInfo.mAndroidProject;
-        addJsNature(monitor, newAndroidProject);
-        newAndroidProject.refreshLocal(2 /* DEPTH_INFINITE */, monitor);
-        newAndroidProject.build(IncrementalProjectBuilder.CLEAN_BUILD, monitor);
+        addProjectDirectories(new SubProgressMonitor(monitor, 5), pageInfo);
+
+        TaskGraph graph = new TaskGraph();
+        final PageInfo p = pageInfo;
+        final IClasspathEntry[] phonegapEntry = new IClasspathEntry[1];
+        // index.html is updated in memory by each step, then written once
+        final String[] indexHtml = new String[1];
+
+        TaskGraph.Task javaMain = graph.add("Updating main activity", 2, new TaskGraph.Step() {
+            public void run(IProgressMonitor m) throws IOException {
+                updateJavaMain(p);
+            }
+        });
+        graph.add("Getting PhoneGap library", 15, new TaskGraph.Step() {
+            public void run(IProgressMonitor m) throws IOException {
+                phonegapEntry[0] = getPhonegapJar(m, p);
+            }
+        }, pageInfo.mFromGitHub ? javaMain : null);
+        TaskGraph.Task html = graph.add("Copying web sources", 25, new TaskGraph.Step() {
+            public void run(IProgressMonitor m) throws IOException, URISyntaxException {
+                indexHtml[0] = getWWWSources(m, p);
+            }
+        });
+        if (pageInfo.mJqmChecked) {
+            html = graph.add("Adding jQuery Mobile", 12, new TaskGraph.Step() {
+                public void run(IProgressMonitor m) throws IOException, URISyntaxException {
+                    indexHtml[0] = setupJqm(m, p, indexHtml[0]);
+                }
+            }, html);
+        }
+        if (pageInfo.mSenchaChecked) {
+            html = graph.add("Adding Sencha Touch", 12, new TaskGraph.Step() {
+                public void run(IProgressMonitor m) throws IOException, URISyntaxException {
+                    indexHtml[0] = setupSencha(m, p, indexHtml[0]);
+                }
+            }, html);
+        }
+        html = graph.add("Writing index.html", 1, new TaskGraph.Step() {
+            public void run(IProgressMonitor m) throws IOException {
+                if (indexHtml[0] != null)
+                    StringIO.write(p.mDestinationDirectory + "assets/www/index.html", indexHtml[0]);
+            }
+        }, html);
+        if (pageInfo.mBundleAssets && !pageInfo.mPureImport) {
+            graph.add("Bundling scripts and stylesheets", 8, new TaskGraph.Step() {
+                public void run(IProgressMonitor m) throws IOException {
+                    String report = new AssetBundler(p.mDestinationDirectory + "assets/www/").bundle();
+                    StringIO.write(p.mDestinationDirectory + "bundle-report.txt", report);
+                }
+            }, html);
+        }
+        graph.add("Updating AndroidManifest.xml", 3, new TaskGraph.Step() {
+            public void run(IProgressMonitor m) throws IOException, URISyntaxException {
+                phonegapizeAndroidManifest(p);
+            }
+        });
+        graph.add("Copying resources", 10, new TaskGraph.Step() {
+            public void run(IProgressMonitor m) throws IOException, URISyntaxException {
+                getResFiles(m, p);
+            }
+        });
+        graph.run(new SubProgressMonitor(monitor, 80));
+
+        final IProject newAndroidProject = pageInfo.mAndroidProject;
+        ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+            public void run(IProgressMonitor m) throws CoreException {
+                m.beginTask("", 20);
+                try {
+                    updateClasspath(new SubProgressMonitor(m, 10), newAndroidProject, phonegapEntry[0]);
+                    addJsNature(m, newAndroidProject);
+                } finally {
+                    m.done();
+                }
+            }
+        }, newAndroidProject, IWorkspace.AVOID_UPDATE, new SubProgressMonitor(monitor, 10));
+        newAndroidProject.refreshLocal(2 /* DEPTH_INFINITE */, new SubProgressMonitor(monitor, 3));
+        newAndroidProject.build(IncrementalProjectBuilder.CLEAN_BUILD, new SubProgressMonitor(monitor, 2));
+    }
+
+    /**
+     * Add every project folder the population steps copy into, since those steps may not use
+     * the workspace themselves.
+     */
+    static private void addProjectDirectories(IProgressMonitor monitor, PageInfo pageInfo)
+            throws CoreException {
+        IProject project = pageInfo.mAndroidProject;
+        monitor.beginTask("", 50);
+        try {
+            addDefaultDirectories(project, "", new String[] { "libs"  }, monitor);
+            addDefaultDirectories(project, "assets/", new String[] { "www"  }, monitor);
+            if (pageInfo.mJqmChecked) {
+                addDefaultDirectories(project, "assets/www/", new String[] {
+                    "jquery.mobile"}, monitor);
+            }
+            if (pageInfo.mSenchaChecked) {
+                addDefaultDirectories(project, "assets/www/", new String[] {
+                    "sencha"  }, monitor);
+                addDefaultDirectories(project, "assets/www/sencha/", new String[] {
+                    "resources" }, monitor);
+            }
+        } finally {
+            monitor.done();
+        }
     }
 
     /**
@@ -148,29 +246,29 @@ class PhonegapProjectPopulate {
             javaFileContents += "\t}\n";
             javaFileContents += "}\n";
             javaFile = dir + "/" + "MyPhoneGapActivity.java";
-           
+            StringIO.write(javaFile, javaFileContents);
         } else {                    // pre-ADT 20
-            javaFileContents = StringIO.read(javaFile);
+            FileRewriter rewriter = new FileRewriter();
     
             // Import com.phonegap instead of Activity
             if (pageInfo.mIsCordova) {
-                javaFileContents = javaFileContents.replace("import android.app.Activity;",
+                rewriter.replace("import android.app.Activity;",
                     "import org.apache.cordova.DroidGap;");
             } else {
-                javaFileContents = javaFileContents.replace("import android.app.Activity;",
+                rewriter.replace("import android.app.Activity;",
                     "import com.phonegap.*;");
             }
     
             // Change superclass to DroidGap instead of Activity
-            javaFileContents = javaFileContents.replace("extends Activity", "extends DroidGap");
+            rewriter.replace("extends Activity", "extends DroidGap");
     
             // Change to start with index.html
-            javaFileContents = javaFileContents.replace("setContentView(R.layout.main);",
+            rewriter.replace("setContentView(R.layout.main);",
                     "super.loadUrl(\"file:///android_asset/www/index.html\");");
     
+            // Rewrite it in place, keeping its line endings
+            rewriter.rewrite(javaFile);
         }
-        // Write out the file
-        StringIO.write(javaFile, javaFileContents);
     }
 
     // Recursively search for java file. Assuming there is only one in the new
@@ -203,41 +301,31 @@ class PhonegapProjectPopulate {
      * 
      * For a non-github install, just point at phonegap.jar
      * 
-     * @throws URISyntaxException
+     * @return the classpath entry to add for it
      */
-    static private void getPhonegapJar(IProgressMonitor monitor, PageInfo pageInfo) throws CoreException,
-            IOException, URISyntaxException {
+    static private IClasspathEntry getPhonegapJar(IProgressMonitor monitor, PageInfo pageInfo)
+            throws IOException {
         
-        addDefaultDirectories(pageInfo.mAndroidProject, "", new String[] { "libs"  }, monitor);
         String libsDir = pageInfo.mDestinationDirectory + "libs/"; 
         
         if (pageInfo.mPackagedPhonegap) {
-            addDefaultDirectories(pageInfo.mAndroidProject, "", new String[] { "libs"  }, monitor);         
             String v = pageInfo.mPhonegapVersion;
             String phonegapJarFileName = (pageInfo.mIsCordova ? "cordova-" : "phonegap-") + v + ".jar";
-            InputStream stream = bundleGetFileAsStream("/resources/phonegap/" + v + "/" + phonegapJarFileName);
-            FileCopy.coreStreamCopy(stream, new File(libsDir + phonegapJarFileName));
-            updateClasspath(monitor,
-                    pageInfo.mAndroidProject, 
-                    libsDir + phonegapJarFileName,
-                    null); 
+            FileCopy.forceCopy(bundleGetFile("/resources/phonegap/" + v + "/" + phonegapJarFileName),
+                    libsDir + phonegapJarFileName);
+            return JavaCore.newLibraryEntry(new Path(libsDir + phonegapJarFileName), null, null);
             
         } else if (pageInfo.mFromGitHub) { 
             String toDir = pageInfo.mDestinationDirectory + "/src";
-            FileCopy.recursiveCopy(pageInfo.mPhonegapDirectory + "/framework/src", toDir);
+            FileCopy.recursiveCopy(pageInfo.mPhonegapDirectory + "/framework/src", toDir,
+                    new SubProgressMonitor(monitor, 10));
             String destJar =  libsDir + "commons-codec-1.3.jar";
             FileCopy.copy(pageInfo.mPhonegapDirectory + "/framework/libs/commons-codec-1.3.jar", destJar);
-            updateClasspath(monitor,
-                    pageInfo.mAndroidProject, 
-                    destJar,
-                    new Path(toDir));        
+            return JavaCore.newLibraryEntry(new Path(destJar), new Path(toDir), null);
         } else { // not from github
             String destJar =  libsDir + pageInfo.mPhonegapJar;
             FileCopy.copy(pageInfo.mPhonegapDirectory + pageInfo.mInstallAndroidDirectory + pageInfo.mPhonegapJar, destJar);
-            updateClasspath(monitor, 
-                    pageInfo.mAndroidProject, 
-                    destJar,
-                    null);      
+            return JavaCore.newLibraryEntry(new Path(destJar), null, null);
         }
     }
     
@@ -252,7 +340,7 @@ class PhonegapProjectPopulate {
      * @throws URISyntaxException
      */
     
-    static private void updateClasspath(IProgressMonitor monitor, IProject androidProject, String jarFile, Path srcLoc) throws CoreException {
+    static private void updateClasspath(IProgressMonitor monitor, IProject androidProject, IClasspathEntry newPath) throws CoreException {
         
         IJavaProject javaProject = (IJavaProject) androidProject.getNature(JavaCore.NATURE_ID);
 
@@ -260,9 +348,6 @@ class PhonegapProjectPopulate {
         IClasspathEntry[] newClasspaths = new IClasspathEntry[classpathList.length + 1];
         System.arraycopy(classpathList, 0, newClasspaths, 0, classpathList.length);
 
-        // Create the new Classpath entry
-
-        IClasspathEntry newPath = JavaCore.newLibraryEntry(new Path(jarFile), srcLoc, null);
         newClasspaths[classpathList.length] = newPath;
 
         // write it back out 
@@ -274,12 +359,13 @@ class PhonegapProjectPopulate {
      * directory Place them in assets/www Also get phonegap.js from framework
      * assets
      * 
+     * @return the contents of index.html, updated but not yet written, or
+     *         null if the sources are not to be tweaked
      * @throws URISyntaxException
      */
-    static private void getWWWSources(IProgressMonitor monitor, PageInfo pageInfo) throws CoreException,
-            IOException, URISyntaxException {
+    static private String getWWWSources(IProgressMonitor monitor, PageInfo pageInfo) throws IOException,
+            URISyntaxException {
 
-        addDefaultDirectories(pageInfo.mAndroidProject, "assets/", new String[] { "www"  }, monitor);
         String wwwDir = pageInfo.mDestinationDirectory + "/assets/www/";
         
         String contentSelection = pageInfo.mContentSelection;
@@ -307,29 +393,30 @@ class PhonegapProjectPopulate {
             } else if (contentSelection.equals("minimal")) {
                 bundleCopy("/resources/phonegap/minimal", wwwDir);
             } else {
-                FileCopy.recursiveCopy(pageInfo.mSourceDirectory, wwwDir);
+                FileCopy.recursiveCopy(pageInfo.mSourceDirectory, wwwDir, new SubProgressMonitor(monitor, 10));
             }
         }
         
-        if (pageInfo.mPureImport) return; // Don't tweak anything
+        if (pageInfo.mPureImport) return null; // Don't tweak anything
         
         String phonegapJsFileName;
         
         if (pageInfo.mPackagedPhonegap) {
             String v = pageInfo.mPhonegapVersion;
             phonegapJsFileName = (pageInfo.mIsCordova ? "cordova-" : "phonegap-") + v + ".js";
-            InputStream stream = bundleGetFileAsStream("/resources/phonegap/" + v + "/" + phonegapJsFileName);
-            FileCopy.coreStreamCopy(stream, new File(wwwDir + phonegapJsFileName));
+            FileCopy.forceCopy(bundleGetFile("/resources/phonegap/" + v + "/" + phonegapJsFileName),
+                    wwwDir + phonegapJsFileName);
             
         } else if (pageInfo.mFromGitHub) {
 
             // Even though there is a phonegap.js file in the directory
             // framework/assets/www, it is WRONG!!
             // phonegap.js must be constructed from the files in
-            // framework/assets/js
+            // framework/assets/js. It's only put together once for each version.
 
-            FileCopy.createPhonegapJs(pageInfo.mPhonegapDirectory + "/framework/"
-                    + "assets/js", wwwDir + "phonegap.js");
+            File phonegapJs = PhonegapJsCache.get(pageInfo.mPhonegapDirectory + "/framework/"
+                    + "assets/js");
+            FileCopy.forceCopy(phonegapJs.getPath(), wwwDir + "phonegap.js");
             phonegapJsFileName = "phonegap.js";
 
         } else { // www.phonegap.com/download
@@ -364,7 +451,6 @@ class PhonegapProjectPopulate {
                 }
             }
         }        
-        StringIO.write(wwwDir + "index.html", indexHtmlContents);
 
         if (pageInfo.mSenchaKitchenSink) { // delete the confusing index_android.html
             try {
@@ -373,24 +459,24 @@ class PhonegapProjectPopulate {
             } catch (Exception e) { // Ignore any exceptions here
             }
         }
+        return indexHtmlContents;
     }
 
     /**
      * Set up contents if jQuery Mobile is selected
      * 
+     * @param indexHtml the contents of index.html, or null if not to be tweaked
+     * @return the updated contents of index.html
      * @throws URISyntaxException
      */
-    static private void setupJqm(IProgressMonitor monitor, PageInfo pageInfo) throws CoreException,
-            IOException, URISyntaxException {
+    static private String setupJqm(IProgressMonitor monitor, PageInfo pageInfo, String indexHtml) throws IOException,
+            URISyntaxException {
 
-        addDefaultDirectories(pageInfo.mAndroidProject, "assets/www/", new String[] {
-            "jquery.mobile"}, monitor);
-        
         String jqmDir = pageInfo.mDestinationDirectory + "assets/www/jquery.mobile/";
         String fromJqmDir = pageInfo.mJqmDirectory;
         String version;
         if (fromJqmDir == null) {  // get from plugin installation
-            version = "-1.1.0";  // TODO - do this programmatically
+            version = packagedJqmVersion();
             bundleCopy("/resources/jqm/jquery.mobile", jqmDir);
         } else {
             version = pageInfo.mJqmVersion;
@@ -402,25 +488,22 @@ class PhonegapProjectPopulate {
             FileCopy.copy(fromJqmDir + fileName, jqmDir + fileName);
             fileName = "/jquery.mobile" + version + ".min.css";  
             FileCopy.copy(fromJqmDir + fileName, jqmDir + fileName);
-            FileCopy.recursiveCopy(fromJqmDir + "/images", jqmDir + "/images");
+            FileCopy.recursiveCopy(fromJqmDir + "/images", jqmDir + "/images", new SubProgressMonitor(monitor, 10));
         }
 
         bundleCopy("/resources/jqm/supplements", jqmDir);
 
-        if (!pageInfo.mPureImport && !pageInfo.mContentSelection.equals("minimal")) {
+        if (indexHtml != null && !pageInfo.mContentSelection.equals("minimal")) {
             // Update the index.html with path to the js and css files
             
-            String file = pageInfo.mDestinationDirectory + "/" + "assets/www/index.html";
-            String fileContents = FileStringReplace.replace(file, "\\{\\$jqmversion\\}", version);
-            
-            fileContents = updatePathInHtml(fileContents, "jquery.mobile" + version, 
-                    ".css\"", "\"jquery.mobile/", pageInfo.mSourceDirectory, null);
-            fileContents = updatePathInHtml(fileContents, "jquery.mobile" + version, 
-                    ".js\"", "\"jquery.mobile/", pageInfo.mSourceDirectory, null);
+            HtmlIncludes includes = new HtmlIncludes(indexHtml.replace("{$jqmversion}", version),
+                    pageInfo.mSourceDirectory);
+            includes.updatePath("jquery.mobile" + version, ".css", "jquery.mobile/", null);
+            includes.updatePath("jquery.mobile" + version, ".js", "jquery.mobile/", null);
             
             // and jquery file
-            fileContents = updatePathInHtml(fileContents, "jquery-1.7.2", 
-                    ".js\"", "\"jquery.mobile/", pageInfo.mSourceDirectory, ".min\"");
+            includes.updatePath("jquery-1.7.2", ".js", "jquery.mobile/", ".min");
+            String fileContents = includes.toString();
             
             // Add CDN comments for jQuery Mobile
             fileContents = fileContents.replace("</head>",  "\n\t<!-- CDN Respositories: For production, replace lines above with these uncommented minified versions -->\n" +
@@ -428,9 +511,9 @@ class PhonegapProjectPopulate {
                     "\t<!-- <script src=\"http://code.jquery.com/jquery-1.7.2.min.js\"></script>-->\n" +
                     "\t<!-- <script src=\"http://code.jquery.com/mobile/1.1.0/jquery.mobile-1.1.0.min.js\"></script>-->\n\t</head>");
             
-            // Write out the file
-            StringIO.write(file, fileContents);
+            return fileContents;
         }
+        return indexHtml;
     }
         
 
@@ -438,36 +521,32 @@ class PhonegapProjectPopulate {
      * Get sencha-touch.js and resources directory. Add references to them in
      * index.html If kitchen sink is selected, so other copies TBD
      * 
+     * @param indexHtml the contents of index.html, or null if not to be tweaked
+     * @return the updated contents of index.html
      * @throws URISyntaxException
      */
-    static private void setupSencha(IProgressMonitor monitor, PageInfo pageInfo) throws CoreException,
-            IOException, URISyntaxException {
+    static private String setupSencha(IProgressMonitor monitor, PageInfo pageInfo, String indexHtml) throws IOException,
+            URISyntaxException {
 
-        addDefaultDirectories(pageInfo.mAndroidProject, "assets/www/", new String[] {
-            "sencha"  }, monitor);
-        addDefaultDirectories(pageInfo.mAndroidProject, "assets/www/sencha/", new String[] {
-            "resources" }, monitor);
-        
         String senchaDir = pageInfo.mDestinationDirectory + "/" + "assets/www/sencha/";
 
         // The .scss files confuse JSDT on Linux
-        FileCopy.recursiveCopySkipSuffix(pageInfo.mSenchaDirectory + "/resources", senchaDir + "resources",".scss");
+        FileCopy.recursiveCopySkipSuffix(pageInfo.mSenchaDirectory + "/resources", senchaDir + "resources",".scss",
+                new SubProgressMonitor(monitor, 10));
 
         // Now copy the sencha-touch*.js
         FileCopy.copy(pageInfo.mSenchaDirectory + "/sencha-touch.js", senchaDir);
         FileCopy.copy(pageInfo.mSenchaDirectory + "/sencha-touch-debug.js", senchaDir);
 
-        if (!pageInfo.mPureImport && !pageInfo.mContentSelection.equals("minimal")) {
+        if (indexHtml != null && !pageInfo.mContentSelection.equals("minimal")) {
             // Update the index.html with path to sencha-touch.css and sencha-touch.js
-            String file = pageInfo.mDestinationDirectory + "/" + "assets/www/index.html";
-            String fileContents = StringIO.read(file);
+            HtmlIncludes includes = new HtmlIncludes(indexHtml, pageInfo.mSourceDirectory);
+            includes.updatePath("sencha-touch", ".css", "sencha/resources/css/", null);
+            includes.updatePath("sencha-touch", ".js", "sencha/", null);
 
-            fileContents = updatePathInHtml(fileContents, "sencha-touch", ".css\"", "\"sencha/resources/css/", pageInfo.mSourceDirectory, null);
-            fileContents = updatePathInHtml(fileContents, "sencha-touch", ".js\"", "\"sencha/", pageInfo.mSourceDirectory, null);
-
-            // Write out the file
-            StringIO.write(file, fileContents);
+            return includes.toString();
         }
+        return indexHtml;
     }
     
 
@@ -476,8 +555,8 @@ class PhonegapProjectPopulate {
      * 
      * @throws URISyntaxException
      */
-    static private void phonegapizeAndroidManifest(PageInfo pageInfo) throws CoreException,
-            IOException, URISyntaxException {
+    static private void phonegapizeAndroidManifest(PageInfo pageInfo) throws IOException,
+            URISyntaxException {
 
         String destFile = pageInfo.mDestinationDirectory + "AndroidManifest.xml";
         String sourceFileContents;
@@ -571,8 +650,8 @@ class PhonegapProjectPopulate {
      * 
      * @throws URISyntaxException
      */
-    static private void getResFiles(IProgressMonitor monitor, PageInfo pageInfo) throws CoreException,
-            IOException, URISyntaxException {
+    static private void getResFiles(IProgressMonitor monitor, PageInfo pageInfo) throws IOException,
+            URISyntaxException {
         String destResDir = pageInfo.mDestinationDirectory + "res" + "/";
 
         if (pageInfo.mPackagedPhonegap) {
@@ -580,6 +659,7 @@ class PhonegapProjectPopulate {
             bundleCopy("/resources/phonegap/" + pageInfo.mPhonegapVersion + "/res", pageInfo.mDestinationDirectory + "/res/");  // xml directory
 
             // Copy resource drawable to all of the project drawable* directories
+            String sourceDrawable = bundleGetFile("/resources/phonegap/icons/mdspgicon.png");
             File destDir = new File(destResDir);
             String fList[] = destDir.list();
             for (String s : fList) {
@@ -588,8 +668,7 @@ class PhonegapProjectPopulate {
                     String fList2[] = drawableDir.list();
                     for (String f : fList2) {
                         if (f.endsWith(".png")) {  // SDK Tools 14 moved default image from icon.png to ic_launcher.png, so this code is now more generic
-                            InputStream sourceDrawable = bundleGetFileAsStream("/resources/phonegap/icons/mdspgicon.png");
-                            FileCopy.coreStreamCopy(sourceDrawable, new File(destResDir + s + "/" + f));
+                            FileCopy.forceCopy(sourceDrawable, destResDir + s + "/" + f);
                         }
                      }
                 }
@@ -615,7 +694,7 @@ class PhonegapProjectPopulate {
             String fList[] = destFile.list();
             for (String s : fList) {
                 if (s.indexOf("drawable") == 0) {
-                    FileCopy.recursiveForceCopy(sourceDrawableDir, destResDir + s);
+                    FileCopy.recursiveForceCopy(sourceDrawableDir, destResDir + s, new SubProgressMonitor(monitor, 2));
                 }
             }
         } else { // the drawables are already in the final directories
@@ -673,87 +752,33 @@ class PhonegapProjectPopulate {
         }
     }
     
-    static private String updatePathInHtml(String fileContents, String fileName, 
-            String suffix, String prepend, String indexHtmlDirectory, String suffixOverride) throws IOException {
-
-        String fullName = fileName + ".min"+ suffix;  
-        int fileNameIndex = fileContents.indexOf(fullName);
-        if (fileNameIndex <= 0) {
-            fullName = fileName + ".min"; // No .js ok for min to get around eclipse issues with min files
-            fileNameIndex = fileContents.indexOf(fullName);
-        }
-        if (fileNameIndex <= 0) {
-            fullName = fileName + "-debug" + suffix;
-            fileNameIndex = fileContents.indexOf(fullName);
-        }
-        if (fileNameIndex <= 0) {
-            fullName = fileName + suffix;
-            fileNameIndex = fileContents.indexOf(fullName);
-        }
-        if (fileNameIndex > 0) {   // Found it
-            int startIncludeIndex = fileContents.lastIndexOf("\"", fileNameIndex);
-            fileContents = fileContents.substring(0, startIncludeIndex) + prepend
-                    + fileContents.substring(fileNameIndex);
-        } else { // must add a new line.  Bug if indexOf finds stuff inside comments
-            int insertSpot = fileContents.indexOf("</head>");
-            int firstIndex = fileContents.indexOf(suffix);
-            if (firstIndex > 0) {
-                insertSpot = fileContents.lastIndexOf('<', firstIndex);
-            } else if (suffix == ".css\"") { // no css includes in source
-                int firstJsIndex = fileContents.indexOf(".js\"");
-                if (firstJsIndex > 0) {
-                    insertSpot = fileContents.lastIndexOf('<', firstJsIndex);
-                }
-            }
+    /**
+     * Copy a template directory from the plugin. Templates are extracted from the plugin once,
+     * then copied locally for every project.
+     */
+    static private void bundleCopy(String dir, String destination) throws IOException {
+        com.mds.apg.Activator.getDefault().getTemplateStore().copyDirectory(dir, destination);
+    }
 
-            if (insertSpot <= 0) {
-                throw new IOException("Supplied index.html in " + indexHtmlDirectory + 
-                        "  is missing the </head> tag");
-            }
-            // adjust insertSpot back to end of last line
-            while (Character.isWhitespace(fileContents.charAt(--insertSpot))) ;
-            insertSpot++;
-
-            if (suffix.equals(".js\"")) {
-                fileContents = fileContents.substring(0, insertSpot)
-                    + "\n      <script type=\"text/javascript\" src=" + prepend + 
-                    (suffixOverride != null ? (fileName + suffixOverride) : fullName) + "></script>"  + 
-                    fileContents.substring(insertSpot);
-            } else if (suffix.equals(".css\"")) {
-                fileContents = fileContents.substring(0, insertSpot)
-                    + "\n      <link rel=\"stylesheet\" href=" + prepend + 
-                    fullName + " type=\"text/css\">"
-                    + fileContents.substring(insertSpot);              
-            } else {
-                throw new IllegalArgumentException("updatePathInHtml called with unsupported suffix");
+    /**
+     * Return the version of jQuery Mobile packaged in the plugin, such as "-1.1.0", from the
+     * name of its script in the plugin's resource catalog.
+     */
+    static private String packagedJqmVersion() throws IOException {
+        for (String name : com.mds.apg.Activator.getDefault().getResourceCatalog().getChildren(
+                "/resources/jqm/jquery.mobile")) {
+            if (name.startsWith("jquery.mobile") && name.endsWith(".js") && !name.endsWith(".min.js")) {
+                return name.substring("jquery.mobile".length(), name.length() - ".js".length());
             }
         }
-        return fileContents;
+        throw new IOException("jQuery Mobile script missing from the plugin");
     }
-    
-    static private void bundleCopy(String dir, String destination) 
-        throws IOException, URISyntaxException {
-        
-        Bundle bundle = com.mds.apg.Activator.getDefault().getBundle();
-        @SuppressWarnings("unchecked")
-        Enumeration<URL> en = bundle.findEntries(dir, "*", true);
-        while (en.hasMoreElements()) {
-            URL url = en.nextElement();
-            String pathFromBase = url.getPath().substring(dir.length()+1);
-            String toFileName = destination + pathFromBase;
-            if (toFileName.indexOf("/.svn/") >= 0) continue;
-            File toFile = new File(toFileName);
-
-            if (pathFromBase.lastIndexOf('/') == pathFromBase.length() - 1) {
-                // This is a directory - create it
-                if (!toFile.mkdir()) {
-                    throw new IOException("bundleCopy: " + "directory Creation Failed: " + toFileName);
-                }
-            } else {
-                // This is a file - copy it
-                FileCopy.coreStreamCopy(url.openStream(), toFile);      
-            }        
-        }
+
+    /**
+     * Get the local path of a file extracted from the plugin.
+     */
+    static private String bundleGetFile(String fileName) throws IOException {
+        return com.mds.apg.Activator.getDefault().getTemplateStore().getFile(fileName).getPath();
     }
     
     static private InputStream bundleGetFileAsStream(String fileName) throws IOException,
@@ -14,20 +14,54 @@ public class StringIO {
 
         File file = new File(fileString);
         BufferedReader reader = new BufferedReader(new FileReader(file));
-        String line = "", output = "";
-        while((line = reader.readLine()) != null)
-        {
-            output += line + "\r\n";
+        StringBuilder output = new StringBuilder((int) file.length() + 1024);
+        String line;
+        try {
+            while((line = reader.readLine()) != null)
+            {
+                output.append(line).append("\r\n");
+            }
+        } finally {
+            reader.close();
         }
-        reader.close();
-        return output;
+        return output.toString();
     }
     
+    /**
+     * Writes the content of a text file. The content goes to a temporary file
+     * alongside, which then replaces the original, so a failed write never
+     * leaves a half written file behind.
+     * @param fileString the file path to the text file
+     * @param output the new content
+     * @throws IOException
+     */
     public static void write(String fileString, String output) throws IOException {
-        FileWriter writer = new FileWriter(fileString);
-        writer.write(output);
-        writer.close();
+        File file = new File(fileString);
+        File temp = new File(file.getPath() + ".tmp");
+        FileWriter writer = new FileWriter(temp);
+        try {
+            writer.write(output);
+        } finally {
+            writer.close();
+        }
+        replace(temp, file);
     } 
+
+    /**
+     * Moves a temporary file over the file it was written for.
+     * @param temp the new content, which is gone afterwards
+     * @param file the file to replace
+     * @throws IOException
+     */
+    static void replace(File temp, File file) throws IOException {
+        if (!temp.renameTo(file)) {
+            // Windows won't rename over an existing file
+            if (!file.delete() || !temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("StringIO: " + "could not replace " + file);
+            }
+        }
+    }
     
     /**
      * Reads and returns the content of an Input Stream 
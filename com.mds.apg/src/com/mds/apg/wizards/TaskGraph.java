@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2012 Mobile Developer Solutions
+ *
+ * Licensed under the Eclipse Public License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.eclipse.org/org/documents/epl-v10.php
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mds.apg.wizards;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Runs a set of steps, each once every step it depends on has finished, with steps which don't
+ * depend on each other running at the same time.
+ *
+ * Each step gets a progress monitor of its own, which may be used from any thread. Only the
+ * thread calling {@link #run(IProgressMonitor)} talks to the real monitor: it reports each
+ * step's progress in proportion to the step's weight, and passes cancellation on to the steps.
+ * Steps must not use the workspace, since the calling thread may hold a scheduling rule which
+ * they would wait for forever.
+ */
+class TaskGraph {
+
+    /** One step of the work. */
+    interface Step {
+        /**
+         * @param monitor For this step alone; 10 units of work make up the whole step.
+         */
+        void run(IProgressMonitor monitor) throws CoreException, IOException, URISyntaxException;
+    }
+
+    /** A step added to the graph, to be named as a dependency of later steps. */
+    static final class Task {
+        final String name;
+        final int weight;
+        final Step step;
+        final List<Task> dependents = new ArrayList<Task>();
+        int waitingFor;
+        final StepMonitor monitor = new StepMonitor();
+
+        Task(String name, int weight, Step step) {
+            this.name = name;
+            this.weight = weight;
+            this.step = step;
+        }
+    }
+
+    /** Units of work that make up a whole step. */
+    private static final int STEP_WORK = 10;
+
+    /** Most steps run at once. */
+    private static final int MAX_THREADS = 4;
+
+    /** How often to report progress and check for cancellation, in milliseconds. */
+    private static final long POLL_INTERVAL = 100;
+
+    private final List<Task> mTasks = new ArrayList<Task>();
+
+    /**
+     * Add a step, to be run after each of <i>dependsOn</i> has finished.
+     *
+     * @param name Shown as the sub task while the step is running
+     * @param weight The step's share of the whole graph's progress
+     */
+    Task add(String name, int weight, Step step, Task... dependsOn) {
+        Task task = new Task(name, weight, step);
+        for (Task t : dependsOn) {
+            if (t != null) {
+                t.dependents.add(task);
+                task.waitingFor++;
+            }
+        }
+        mTasks.add(task);
+        return task;
+    }
+
+    /**
+     * Run every step. If one fails, no more are started, those running are canceled, and the
+     * first failure is thrown once they have finished.
+     *
+     * @throws OperationCanceledException if <i>monitor</i> is canceled
+     */
+    void run(IProgressMonitor monitor) throws CoreException, IOException, URISyntaxException {
+        int totalWeight = 0;
+        for (Task task : mTasks) {
+            totalWeight += task.weight;
+        }
+        monitor.beginTask("", totalWeight);
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_THREADS, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "TaskGraph");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            CompletionService<Task> done = new ExecutorCompletionService<Task>(executor);
+            int running = 0;
+            for (Task task : mTasks) {
+                if (task.waitingFor == 0) {
+                    submit(done, task);
+                    running++;
+                }
+            }
+            int finished = 0;
+            double reported = 0;
+            String shown = null;
+            Throwable failure = null;
+            while (running > 0) {
+                Future<Task> f = done.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (f != null) {
+                    running--;
+                    try {
+                        Task task = f.get();
+                        task.monitor.finish();
+                        finished++;
+                        if (failure == null) {
+                            for (Task next : task.dependents) {
+                                if (--next.waitingFor == 0) {
+                                    submit(done, next);
+                                    running++;
+                                }
+                            }
+                        }
+                    } catch (ExecutionException e) {
+                        if (failure == null) {
+                            failure = e.getCause();
+                            cancel();
+                        }
+                    }
+                }
+                if (failure == null && monitor.isCanceled()) {
+                    failure = new OperationCanceledException();
+                    cancel();
+                }
+
+                double worked = 0;
+                String current = null;
+                for (Task task : mTasks) {
+                    double fraction = task.monitor.fraction();
+                    worked += task.weight * fraction;
+                    if (current == null && fraction > 0 && fraction < 1) {
+                        current = task.name;
+                    }
+                }
+                monitor.internalWorked(worked - reported);
+                reported = worked;
+                if (current != null && !current.equals(shown)) {
+                    monitor.subTask(current);
+                    shown = current;
+                }
+            }
+            if (failure == null && finished < mTasks.size()) {
+                throw new IllegalStateException("TaskGraph: steps left waiting on each other");
+            }
+            rethrow(failure);
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException();
+        } finally {
+            executor.shutdownNow();
+            monitor.done();
+        }
+    }
+
+    private static void submit(CompletionService<Task> done, final Task task) {
+        done.submit(new Runnable() {
+            public void run() {
+                try {
+                    task.monitor.checkCanceled();
+                    task.step.run(task.monitor);
+                } catch (CoreException e) {
+                    throw new StepFailure(e);
+                } catch (IOException e) {
+                    throw new StepFailure(e);
+                } catch (URISyntaxException e) {
+                    throw new StepFailure(e);
+                }
+            }
+        }, task);
+    }
+
+    private void cancel() {
+        for (Task task : mTasks) {
+            task.monitor.setCanceled(true);
+        }
+    }
+
+    private static void rethrow(Throwable failure) throws CoreException, IOException,
+            URISyntaxException {
+        if (failure == null) {
+            return;
+        }
+        if (failure instanceof StepFailure) {
+            failure = failure.getCause();
+        }
+        if (failure instanceof CoreException) {
+            throw (CoreException) failure;
+        } else if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof URISyntaxException) {
+            throw (URISyntaxException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new IOException("TaskGraph: " + failure);
+    }
+
+    /**
+     * Carries a checked exception out of a Runnable.
+     */
+    @SuppressWarnings("serial")
+    private static class StepFailure extends RuntimeException {
+        StepFailure(Exception e) {
+            super(e);
+        }
+    }
+
+    /**
+     * The monitor given to a single step. It just counts the work done, and may be used from
+     * any thread.
+     */
+    private static class StepMonitor implements IProgressMonitor {
+        private double mWorked;
+        private boolean mFinished;
+        private volatile boolean mCanceled;
+
+        synchronized double fraction() {
+            return mFinished ? 1 : Math.min(1, mWorked / STEP_WORK);
+        }
+
+        synchronized void finish() {
+            mFinished = true;
+        }
+
+        void checkCanceled() {
+            if (mCanceled) {
+                throw new OperationCanceledException();
+            }
+        }
+
+        public void beginTask(String name, int totalWork) {
+        }
+
+        public void done() {
+        }
+
+        public synchronized void internalWorked(double work) {
+            mWorked += work;
+        }
+
+        public boolean isCanceled() {
+            return mCanceled;
+        }
+
+        public void setCanceled(boolean value) {
+            mCanceled = value;
+        }
+
+        public void setTaskName(String name) {
+        }
+
+        public void subTask(String name) {
+        }
+
+        public void worked(int work) {
+            internalWorked(work);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package org.eclipse.wst.jsdt.debug.rhino.debugger.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.wst.jsdt.debug.internal.rhino.transport.Connection;
+import org.eclipse.wst.jsdt.debug.internal.rhino.transport.PipedTransportService;
+import org.eclipse.wst.jsdt.debug.internal.rhino.transport.Request;
+import org.eclipse.wst.jsdt.debug.internal.rhino.transport.Response;
+import org.eclipse.wst.jsdt.debug.internal.rhino.transport.SocketConnection;
+import org.eclipse.wst.jsdt.debug.internal.rhino.transport.SocketTransportService;
+import org.eclipse.wst.jsdt.debug.internal.rhino.transport.TransportService;
+import org.eclipse.wst.jsdt.debug.internal.rhino.transport.TransportService.ListenerKey;
+
+/**
+ * Exercise the Rhino debugger transports: packets both ways over a loopback socket and over
+ * {@link PipedTransportService}, the ways an accept can end, and the packet framing against a
+ * plain socket written the way the Reader and Writer based connections did. Then time round
+ * trips over each transport.
+ *
+ * <pre>
+ * java org.eclipse.wst.jsdt.debug.rhino.debugger.benchmark.TransportDriver [-Dport=n] [-Dpackets=n]
+ * </pre>
+ *
+ * Ports <i>port</i> to <i>port</i> + 3 on localhost must be free. Any failed check stops the run
+ * with an {@link AssertionError}.
+ */
+public class TransportDriver {
+
+    private static final int PORT = Integer.getInteger("port", 44123);
+
+    private static final int PACKETS = Integer.getInteger("packets", 200);
+
+    /** How long an accept or attach is given, in milliseconds. */
+    private static final long TIMEOUT = 5000;
+
+    /** How long an accept which is ended early may take to notice, in milliseconds. */
+    private static final long PROMPT = 1000;
+
+    public static void main(String[] args) throws Exception {
+        String[] texts = new String[PACKETS];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = text(i, i * 500);
+        }
+
+        checkExchange(new SocketTransportService(), "localhost:" + PORT, texts);
+        checkExchange(new PipedTransportService(), "pipe", texts);
+
+        checkAcceptTimeout(new SocketTransportService(), "localhost:" + (PORT + 1));
+        checkAcceptStopped(new SocketTransportService(), "localhost:" + (PORT + 1));
+        checkAcceptInterrupted(new SocketTransportService(), "localhost:" + (PORT + 1));
+        checkAcceptInterrupted(new PipedTransportService(), "pipe");
+
+        checkFraming(PORT + 2);
+
+        // Alternate so that neither transport benefits from running second.
+        for (int i = 0; i < 2; i++) {
+            time(new SocketTransportService(), "localhost:" + (PORT + 3), texts);
+            time(new PipedTransportService(), "pipe", texts);
+        }
+    }
+
+    /** Send every text as a request, and have it echoed back in the response. */
+    private static void checkExchange(TransportService service, String address, String[] texts)
+            throws Exception {
+        Connection[] pair = connect(service, address);
+        try {
+            exchange(pair[0], pair[1], texts);
+        } finally {
+            pair[1].close();
+        }
+        try {
+            pair[0].readPacket();
+            throw new AssertionError(name(service) + ": read after the other end closed");
+        } catch (IOException e) {
+            // expected
+        }
+        pair[0].close();
+        if (pair[0].isOpen() || pair[1].isOpen()) {
+            throw new AssertionError(name(service) + ": open after close");
+        }
+        System.out.println(String.format("%s: %d packets exchanged", name(service), texts.length));
+    }
+
+    private static void checkAcceptTimeout(TransportService service, String address)
+            throws Exception {
+        ListenerKey key = service.startListening(address);
+        long start = System.currentTimeMillis();
+        try {
+            service.accept(key, 300, 300);
+            throw new AssertionError(name(service) + ": accept without a connection");
+        } catch (SocketTimeoutException e) {
+            report(service, "accept timed out", start);
+        } finally {
+            service.stopListening(key);
+        }
+    }
+
+    /** Stop listening while another thread waits to accept, without a timeout. */
+    private static void checkAcceptStopped(final TransportService service, String address)
+            throws Exception {
+        final ListenerKey key = service.startListening(address);
+        Thread stopper = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(300);
+                    service.stopListening(key);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        stopper.start();
+        long start = System.currentTimeMillis();
+        try {
+            service.accept(key, 0, 0);
+            throw new AssertionError(name(service) + ": accept after listening stopped");
+        } catch (IOException e) {
+            report(service, "accept ended by stopListening", start);
+        }
+        stopper.join();
+    }
+
+    /**
+     * Interrupt a thread waiting to accept, as DebugSessionManager.stop() does. The accept must
+     * end promptly rather than wait out its timeout.
+     */
+    private static void checkAcceptInterrupted(final TransportService service, String address)
+            throws Exception {
+        final ListenerKey key = service.startListening(address);
+        final Exception[] failure = new Exception[1];
+        Thread acceptor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    service.accept(key, 10 * TIMEOUT, 10 * TIMEOUT);
+                } catch (Exception e) {
+                    failure[0] = e;
+                }
+            }
+        };
+        acceptor.start();
+        Thread.sleep(300);
+        long start = System.currentTimeMillis();
+        acceptor.interrupt();
+        acceptor.join(10 * TIMEOUT);
+        if (!(failure[0] instanceof IOException)) {
+            throw new AssertionError(name(service) + ": interrupted accept ended with " + failure[0]);
+        }
+        if (service instanceof SocketTransportService && !(failure[0] instanceof InterruptedIOException)) {
+            throw new AssertionError(name(service) + ": interrupted accept ended with " + failure[0]);
+        }
+        report(service, "accept ended by interrupt", start);
+        service.stopListening(key);
+    }
+
+    /**
+     * Packets written as "length CRLF json", the way the Reader and Writer based connections
+     * wrote them, must be read, and written the same way back.
+     */
+    private static void checkFraming(int port) throws Exception {
+        ServerSocket server = new ServerSocket(port);
+        Socket client = new Socket("localhost", port);
+        Socket socket = server.accept();
+        server.close();
+        try {
+            String json = "{\"type\":\"request\",\"seq\":1,\"command\":\"x\",\"arguments\":{\"v\":\"é😀\"}}";
+            Writer writer = new OutputStreamWriter(client.getOutputStream(), "UTF-8");
+            writer.write(json.length() + "\r\n" + json + json.length() + "\r\n" + json);
+            writer.flush();
+            SocketConnection connection = new SocketConnection(socket);
+            for (int i = 0; i < 2; i++) {
+                Request request = (Request) connection.readPacket();
+                if (!"é😀".equals(request.getArguments().get("v"))) {
+                    throw new AssertionError("framing: read " + request);
+                }
+            }
+
+            Request request = new Request("back");
+            request.setArgument("v", "é😀");
+            connection.writePacket(request);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), "UTF-8"));
+            char[] chars = new char[Integer.parseInt(reader.readLine())];
+            for (int n = 0; n < chars.length;) {
+                n += reader.read(chars, n, chars.length - n);
+            }
+            if (new String(chars).indexOf("é😀") < 0) {
+                throw new AssertionError("framing: wrote " + new String(chars));
+            }
+            connection.close();
+        } finally {
+            client.close();
+            socket.close();
+        }
+        System.out.println("framing: compatible");
+    }
+
+    private static void time(TransportService service, String address, String[] texts)
+            throws Exception {
+        Connection[] pair = connect(service, address);
+        try {
+            long start = System.nanoTime();
+            exchange(pair[0], pair[1], texts);
+            long elapsed = System.nanoTime() - start;
+            System.out.println(String.format("%s: %d us per round trip", name(service),
+                    TimeUnit.NANOSECONDS.toMicros(elapsed) / texts.length));
+        } finally {
+            pair[1].close();
+            pair[0].close();
+        }
+    }
+
+    /**
+     * Return a connected {server, client} pair. Listening is stopped again once the server side
+     * is accepted.
+     */
+    private static Connection[] connect(final TransportService service, String address)
+            throws Exception {
+        final ListenerKey key = service.startListening(address);
+        final Connection[] server = new Connection[1];
+        final Exception[] failure = new Exception[1];
+        Thread acceptor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    server[0] = service.accept(key, TIMEOUT, TIMEOUT);
+                } catch (Exception e) {
+                    failure[0] = e;
+                }
+            }
+        };
+        acceptor.start();
+        Connection client;
+        try {
+            client = service.attach(key.address(), TIMEOUT, TIMEOUT);
+        } finally {
+            acceptor.join();
+            service.stopListening(key);
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return new Connection[] { server[0], client };
+    }
+
+    /**
+     * Write every text from the client while the server echoes each one back, so that both
+     * directions are busy at once.
+     */
+    private static void exchange(final Connection server, final Connection client,
+            final String[] texts) throws Exception {
+        final Exception[] failure = new Exception[2];
+        Thread echo = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < texts.length; i++) {
+                        Request request = (Request) server.readPacket();
+                        if (!texts[i].equals(request.getArguments().get("text"))) {
+                            throw new AssertionError("request " + i + " garbled");
+                        }
+                        Response response = new Response(request.getSequence(), request.getCommand());
+                        response.getBody().put("text", texts[i]);
+                        server.writePacket(response);
+                    }
+                } catch (Exception e) {
+                    failure[0] = e;
+                }
+            }
+        };
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < texts.length; i++) {
+                        Request request = new Request("evaluate");
+                        request.setArgument("text", texts[i]);
+                        client.writePacket(request);
+                    }
+                } catch (Exception e) {
+                    failure[1] = e;
+                }
+            }
+        };
+        echo.start();
+        writer.start();
+        for (int i = 0; i < texts.length; i++) {
+            Response response = (Response) client.readPacket();
+            if (!texts[i].equals(response.getBody().get("text"))) {
+                throw new AssertionError("response " + i + " garbled");
+            }
+        }
+        echo.join();
+        writer.join();
+        for (Exception e : failure) {
+            if (e != null) {
+                throw e;
+            }
+        }
+    }
+
+    private static void report(TransportService service, String what, long start) {
+        long elapsed = System.currentTimeMillis() - start;
+        System.out.println(String.format("%s: %s after %d ms", name(service), what, elapsed));
+        if (elapsed > PROMPT) {
+            throw new AssertionError(name(service) + ": " + what + " took too long");
+        }
+    }
+
+    private static String name(TransportService service) {
+        return service.getClass().getSimpleName();
+    }
+
+    /**
+     * Return <i>length</i> characters of JSON-unfriendly text: multi-byte and supplementary
+     * characters, quotes and line breaks among plain letters.
+     */
+    private static String text(long seed, int length) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            switch (random.nextInt(6)) {
+            case 0: sb.append('é'); break;
+            case 1: sb.append('中'); break;
+            case 2: sb.append("😀"); break;
+            case 3: sb.append('"'); break;
+            case 4: sb.append('\n'); break;
+            default: sb.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.jsdt.debug.internal.rhino.transport;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of direct {@link ByteBuffer}s for {@link ChannelConnection}s. Direct buffers are
+ * costly to allocate, so they are kept for the next connection or packet rather than left
+ * for the garbage collector.
+ *
+ * @since 1.1
+ */
+final class BufferPool {
+
+	/**
+	 * The size of each buffer
+	 */
+	static final int BUFFER_SIZE = 32 * 1024;
+
+	/**
+	 * The most buffers kept in the pool
+	 */
+	private static final int MAX_POOLED = 8;
+
+	/**
+	 * Buffers not in use
+	 */
+	private static final List pool = new ArrayList(MAX_POOLED);
+
+	/**
+	 * Constructor
+	 * no instantiation
+	 */
+	private BufferPool() {}
+
+	/**
+	 * Returns a cleared buffer of {@link #BUFFER_SIZE} bytes, from the pool if there is one
+	 *
+	 * @return a buffer, never <code>null</code>
+	 */
+	static ByteBuffer acquire() {
+		ByteBuffer buffer = null;
+		synchronized (pool) {
+			if (!pool.isEmpty()) {
+				buffer = (ByteBuffer) pool.remove(pool.size() - 1);
+			}
+		}
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer to the pool. It must not be used again by the caller.
+	 *
+	 * @param buffer a buffer from {@link #acquire()}, <code>null</code> is ignored
+	 */
+	static void release(ByteBuffer buffer) {
+		if (buffer == null) {
+			return;
+		}
+		synchronized (pool) {
+			if (pool.size() < MAX_POOLED) {
+				pool.add(buffer);
+			}
+		}
+	}
+}
@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.jsdt.debug.internal.rhino.transport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Map;
+
+/**
+ * A {@link Connection} that communicates over NIO channels.<br>
+ * <br>
+ * Each packet is framed by its length: the number of characters of its JSON text, in decimal,
+ * then a CRLF, then the JSON text in UTF-8. Packets are encoded straight into, and decoded
+ * straight out of, pooled direct {@link ByteBuffer}s, and the character buffers used for the
+ * JSON text are kept from one packet to the next, so reading or writing a packet only
+ * allocates the packet itself.
+ *
+ * @since 1.1
+ */
+public class ChannelConnection implements Connection {
+
+	/**
+	 * The most digits allowed in the content length
+	 */
+	private static final int MAX_LENGTH_DIGITS = 10;
+
+	/**
+	 * The starting size of the character buffers, which grow to fit the largest packet
+	 */
+	private static final int INITIAL_CHARS = 1024;
+
+	private static final Charset UTF_8 = Charset.forName(Constants.UTF_8);
+
+	private final ReadableByteChannel in;
+	private final WritableByteChannel out;
+
+	private final Object readLock = new Object();
+	private final CharsetDecoder decoder;
+	private ByteBuffer readBuffer;
+	private char[] readChars = new char[INITIAL_CHARS];
+
+	private final Object writeLock = new Object();
+	private final CharsetEncoder encoder;
+	private final StringBuffer writeText = new StringBuffer(INITIAL_CHARS);
+	private char[] writeChars = new char[INITIAL_CHARS];
+
+	/**
+	 * Constructor
+	 *
+	 * @param in the channel to read from, <code>null</code> is not accepted
+	 * @param out the channel to write to, <code>null</code> is not accepted. This may be the
+	 *            same channel as <code>in</code>
+	 */
+	public ChannelConnection(ReadableByteChannel in, WritableByteChannel out) {
+		if (in == null) {
+			throw new IllegalArgumentException("You cannot create a new ChannelConnection on a null input channel"); //$NON-NLS-1$
+		}
+		if (out == null) {
+			throw new IllegalArgumentException("You cannot create a new ChannelConnection on a null output channel"); //$NON-NLS-1$
+		}
+		this.in = in;
+		this.out = out;
+		// Bad input is replaced, as the Readers and Writers used before did
+		decoder = UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		encoder = UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		readBuffer = BufferPool.acquire();
+		readBuffer.flip(); // nothing read yet
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.wst.jsdt.debug.internal.rhino.transport.Connection#isOpen()
+	 */
+	public boolean isOpen() {
+		return in.isOpen() && out.isOpen();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.wst.jsdt.debug.internal.rhino.transport.Connection#close()
+	 */
+	public void close() throws IOException {
+		try {
+			out.close();
+		} finally {
+			in.close();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.wst.jsdt.debug.internal.rhino.transport.Connection#writePacket(org.eclipse.wst.jsdt.debug.internal.rhino.transport.Packet)
+	 */
+	public void writePacket(Packet packet) throws IOException {
+		synchronized (writeLock) {
+			writeText.setLength(0);
+			JSONUtil.write(packet.toJSON(), writeText);
+			int length = writeText.length();
+			if (writeChars.length < length) {
+				writeChars = new char[Math.max(length, writeChars.length * 2)];
+			}
+			writeText.getChars(0, length, writeChars, 0);
+
+			ByteBuffer buffer = BufferPool.acquire();
+			try {
+				String count = Integer.toString(length);
+				for (int i = 0; i < count.length(); i++) {
+					buffer.put((byte) count.charAt(i));
+				}
+				buffer.put((byte) '\r');
+				buffer.put((byte) '\n');
+
+				CharBuffer chars = CharBuffer.wrap(writeChars, 0, length);
+				encoder.reset();
+				CoderResult result;
+				while ((result = encoder.encode(chars, buffer, true)).isOverflow()) {
+					drain(buffer);
+				}
+				if (result.isError()) {
+					result.throwException();
+				}
+				while (encoder.flush(buffer).isOverflow()) {
+					drain(buffer);
+				}
+				drain(buffer);
+			} finally {
+				BufferPool.release(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Writes everything in the given buffer to the channel, and clears the buffer
+	 *
+	 * @param buffer
+	 * @throws IOException
+	 */
+	private void drain(ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.wst.jsdt.debug.internal.rhino.transport.Connection#readPacket()
+	 */
+	public Packet readPacket() throws IOException {
+		synchronized (readLock) {
+			if (readBuffer == null) {
+				throw new EOFException();
+			}
+			try {
+				int length = readLength();
+				if (readChars.length < length) {
+					readChars = new char[Math.max(length, readChars.length * 2)];
+				}
+				CharBuffer chars = CharBuffer.wrap(readChars, 0, length);
+				decoder.reset();
+				while (true) {
+					CoderResult result = decoder.decode(readBuffer, chars, false);
+					if (!chars.hasRemaining()) {
+						break;
+					}
+					if (result.isUnderflow()) {
+						fill();
+					} else if (result.isOverflow()) {
+						// A character made of two chars would not fit
+						throw new IOException("Content length ends within a character: " + length); //$NON-NLS-1$
+					} else {
+						result.throwException();
+					}
+				}
+
+				Map json = (Map) JSONUtil.read(readChars, length);
+				String type = Packet.getType(json);
+				if (EventPacket.TYPE.equals(type))
+					return new EventPacket(json);
+				if (JSONConstants.REQUEST.equals(type))
+					return new Request(json);
+				if (JSONConstants.RESPONSE.equals(type))
+					return new Response(json);
+
+				throw new IOException("Unknown packet type: " + type); //$NON-NLS-1$
+			} catch (IOException e) {
+				if (!in.isOpen()) {
+					// Nothing more can be read, so the buffer can go back to the pool
+					BufferPool.release(readBuffer);
+					readBuffer = null;
+				}
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Reads the content length and the CRLF after it
+	 *
+	 * @return the number of characters in the packet
+	 * @throws IOException
+	 */
+	private int readLength() throws IOException {
+		long length = 0;
+		int digits = 0;
+		while (true) {
+			if (!readBuffer.hasRemaining()) {
+				fill();
+			}
+			byte b = readBuffer.get();
+			if (b == '\r') {
+				break;
+			}
+			if (b < '0' || b > '9' || ++digits > MAX_LENGTH_DIGITS) {
+				throw new IOException("Invalid content length, at byte: " + b); //$NON-NLS-1$
+			}
+			length = length * 10 + (b - '0');
+		}
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("Invalid content length: " + length); //$NON-NLS-1$
+		}
+		if (digits == 0) {
+			throw new IOException("Failed to parse content length: missing"); //$NON-NLS-1$
+		}
+		if (!readBuffer.hasRemaining()) {
+			fill();
+		}
+		if (readBuffer.get() != '\n') {
+			throw new IOException("Missing CRLF after content length"); //$NON-NLS-1$
+		}
+		return (int) length;
+	}
+
+	/**
+	 * Reads more bytes into the read buffer, keeping those not yet used
+	 *
+	 * @throws IOException if the channel is at its end, or the read failed
+	 */
+	private void fill() throws IOException {
+		readBuffer.compact();
+		try {
+			int count;
+			do {
+				count = in.read(readBuffer);
+			} while (count == 0 && readBuffer.hasRemaining());
+			if (count < 0) {
+				throw new EOFException();
+			}
+		} finally {
+			readBuffer.flip();
+		}
+	}
+}
@@ -65,6 +65,18 @@ public final class JSONUtil {
 		return parse(new StringCharacterIterator(jsonString));
 	}
 
+	/**
+	 * Reads an object from the given JSON characters, without first copying them to a string
+	 * 
+	 * @param chars the array holding the JSON text
+	 * @param length the number of characters of JSON text, from the start of the array
+	 * @return the object corresponding to the JSON text or <code>null</code>
+	 * @see #read(String)
+	 */
+	public static Object read(char[] chars, int length) {
+		return parse(new CharArrayIterator(chars, length));
+	}
+
 	/**
 	 * Writes the given object to JSON
 	 * <br><br>JSON identifiers map to Java as follows:
@@ -86,6 +98,17 @@ public final class JSONUtil {
 		return buffer.toString();
 	}
 
+	/**
+	 * Writes the given object to JSON, appending it to the given buffer
+	 * 
+	 * @param jsonObject
+	 * @param buffer the buffer to append to, <code>null</code> is not accepted
+	 * @see #write(Object)
+	 */
+	public static void write(Object jsonObject, StringBuffer buffer) {
+		writeValue(jsonObject, buffer);
+	}
+
 	/**
 	 * Creates an {@link IllegalStateException} for the given message and iterator
 	 * 
@@ -459,4 +482,74 @@ public final class JSONUtil {
 		}
 		buffer.append('"');
 	}
+
+	/**
+	 * A {@link CharacterIterator} over the start of a character array
+	 */
+	private static final class CharArrayIterator implements CharacterIterator {
+
+		private final char[] chars;
+		private final int end;
+		private int index = 0;
+
+		CharArrayIterator(char[] chars, int length) {
+			this.chars = chars;
+			this.end = length;
+		}
+
+		public char first() {
+			index = 0;
+			return current();
+		}
+
+		public char last() {
+			index = end > 0 ? end - 1 : 0;
+			return current();
+		}
+
+		public char current() {
+			return index < end ? chars[index] : DONE;
+		}
+
+		public char next() {
+			if (index < end) {
+				index++;
+			}
+			return current();
+		}
+
+		public char previous() {
+			if (index == 0) {
+				return DONE;
+			}
+			index--;
+			return current();
+		}
+
+		public char setIndex(int position) {
+			if (position < 0 || position > end) {
+				throw new IllegalArgumentException("Invalid index: " + position); //$NON-NLS-1$
+			}
+			index = position;
+			return current();
+		}
+
+		public int getBeginIndex() {
+			return 0;
+		}
+
+		public int getEndIndex() {
+			return end;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public Object clone() {
+			CharArrayIterator copy = new CharArrayIterator(chars, end);
+			copy.index = index;
+			return copy;
+		}
+	}
 }
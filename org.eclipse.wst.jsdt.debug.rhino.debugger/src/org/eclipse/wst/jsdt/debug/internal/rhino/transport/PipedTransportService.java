@@ -9,13 +9,12 @@
 package org.eclipse.wst.jsdt.debug.internal.rhino.transport;
 
 import java.io.IOException;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.nio.channels.Pipe;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * {@link TransportService} specialization for a {@link PipedConnection}
+ * {@link TransportService} that connects within the same VM, through a pair of NIO {@link Pipe}s
  * 
  * @since 1.0
  */
@@ -100,15 +99,10 @@ public class PipedTransportService implements TransportService {
 			if (listeners.get(key) != null)
 				throw new IllegalStateException("PipedTransport only accepts one accept at a time"); //$NON-NLS-1$
 
-			PipedInputStream serveris = new PipedInputStream();
-			PipedOutputStream clientos = new PipedOutputStream();
-			serveris.connect(clientos);
+			Pipe toServer = Pipe.open();
+			Pipe toClient = Pipe.open();
 
-			PipedOutputStream serveros = new PipedOutputStream();
-			PipedInputStream clientis = new PipedInputStream();
-			serveros.connect(clientis);
-
-			listeners.put(key, new PipedConnection(clientis, clientos));
+			listeners.put(key, new ChannelConnection(toClient.source(), toServer.sink()));
 			listeners.notifyAll();
 			long startTime = System.currentTimeMillis();
 			while (true) {
@@ -127,7 +121,7 @@ public class PipedTransportService implements TransportService {
 					}
 					continue;
 				}
-				return new PipedConnection(serveris, serveros);
+				return new ChannelConnection(toServer.source(), toClient.sink());
 			}
 		}
 	}
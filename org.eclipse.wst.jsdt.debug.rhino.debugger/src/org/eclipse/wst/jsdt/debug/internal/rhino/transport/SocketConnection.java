@@ -8,26 +8,21 @@
  *******************************************************************************/
 package org.eclipse.wst.jsdt.debug.internal.rhino.transport;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.Reader;
-import java.io.Writer;
 import java.net.Socket;
-import java.util.Map;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
 
 /**
- * A specialized {@link Connection} that communicates using {@link Socket}s
+ * A specialized {@link Connection} that communicates using {@link Socket}s.<br>
+ * <br>
+ * The socket's own {@link SocketChannel} is used if it has one, as the sockets of the
+ * {@link SocketTransportService} do; otherwise its streams are read and written through channels.
  * 
  * @since 1.0
  */
-public class SocketConnection implements Connection {
+public class SocketConnection extends ChannelConnection {
 
-	private Writer writer;
-	private Reader reader;
 	private Socket socket;
 
 	/**
@@ -38,12 +33,33 @@ public class SocketConnection implements Connection {
 	 * @throws IOException
 	 */
 	public SocketConnection(Socket socket) throws IOException {
+		this(socket, checkSocket(socket).getChannel());
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param socket the underlying {@link Socket}
+	 * @param channel the socket's channel or <code>null</code> if it has none
+	 * @throws IOException
+	 */
+	private SocketConnection(Socket socket, SocketChannel channel) throws IOException {
+		super(channel != null ? channel : Channels.newChannel(socket.getInputStream()), 
+				channel != null ? channel : Channels.newChannel(socket.getOutputStream()));
+		this.socket = socket;
+	}
+
+	/**
+	 * Checks that the given socket is not <code>null</code>
+	 * 
+	 * @param socket
+	 * @return the socket
+	 */
+	private static Socket checkSocket(Socket socket) {
 		if(socket == null) {
 			throw new IllegalArgumentException("You cannot create a new SocketConnection on a null Socket"); //$NON-NLS-1$
 		}
-		this.socket = socket;
-		writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), Constants.UTF_8));
-		reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), Constants.UTF_8));
+		return socket;
 	}
 
 	/* (non-Javadoc)
@@ -59,64 +75,4 @@ public class SocketConnection implements Connection {
 	public void close() throws IOException {
 		socket.close();
 	}
-	
-	/* (non-Javadoc)
-	 * @see org.eclipse.wst.jsdt.debug.internal.core.jsdi.connect.Connection#writePacket(org.eclipse.wst.jsdt.debug.internal.core.jsdi.connect.Packet)
-	 */
-	public void writePacket(Packet packet) throws IOException {
-		String jsonString = JSONUtil.write(packet.toJSON());
-		String count = Integer.toString(jsonString.length());
-		writer.write(count);
-		writer.write('\r');
-		writer.write('\n');
-		writer.write(jsonString);
-		writer.flush();
-	}
-
-	/* (non-Javadoc)
-	 * @see org.eclipse.wst.jsdt.debug.internal.core.jsdi.connect.Connection#readPacket()
-	 */
-	public Packet readPacket() throws IOException {
-		StringBuffer buffer = new StringBuffer();
-		int c;
-		while ((c = reader.read()) != -1) {
-			if (c == '\r')
-				break;
-			buffer.append((char) c);
-			if (buffer.length() > 10) {
-				throw new IOException("Invalid content length: " + buffer.toString()); //$NON-NLS-1$
-			}
-		}
-
-		int length = 0;
-		try {
-			length = Integer.parseInt(buffer.toString());
-		} catch (NumberFormatException e) {
-			throw new IOException("Failed to parse content length: " + buffer.toString()); //$NON-NLS-1$
-		}
-
-		if ('\r' != c || '\n' != (char) reader.read())
-			throw new IOException("Missing CRLF after content length"); //$NON-NLS-1$
-
-		char[] message = new char[length];
-		int n = 0;
-		int off = 0;
-		while (n < length) {
-			int count = reader.read(message, off + n, length - n);
-			if (count < 0)
-				throw new EOFException();
-			n += count;
-		}
-
-		Map json = (Map) JSONUtil.read(new String(message));
-		String type = Packet.getType(json);
-		if (EventPacket.TYPE.equals(type))
-			return new EventPacket(json);
-		if (JSONConstants.REQUEST.equals(type))
-			return new Request(json);
-		if (JSONConstants.RESPONSE.equals(type))
-			return new Response(json);
-
-		throw new IOException("Unknown packet type: " + type); //$NON-NLS-1$
-	}
 }
@@ -9,14 +9,27 @@
 package org.eclipse.wst.jsdt.debug.internal.rhino.transport;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.HashMap;
 import java.util.Map;
 
 
 /**
- * Implementation of a transport service that using a {@link Socket} for communication
+ * Implementation of a transport service that using a {@link Socket} for communication.<br>
+ * <br>
+ * Sockets are opened through NIO channels, so each {@link SocketConnection} reads and writes
+ * its socket's channel directly. A listening socket is non-blocking, and accepts through a
+ * {@link Selector} of its own, which lets an accept time out and be ended by
+ * {@link #stopListening(ListenerKey)} or by interrupting the accepting thread.
  * 
  * @since 1.0
  */
@@ -41,7 +54,34 @@ public class SocketTransportService implements TransportService {
 	}
 
 	/**
-	 * Map of {@link ListenerKey} to {@link ServerSocket}s
+	 * A listening channel and the selector it accepts through
+	 */
+	static class Listener {
+
+		final ServerSocketChannel channel;
+		final Selector selector;
+
+		Listener(ServerSocketChannel channel, Selector selector) {
+			this.channel = channel;
+			this.selector = selector;
+		}
+
+		/**
+		 * Closes the selector, waking any accept, and then the channel
+		 * 
+		 * @throws IOException
+		 */
+		void close() throws IOException {
+			try {
+				selector.close();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Map of {@link ListenerKey} to {@link Listener}s
 	 */
 	Map listeners = new HashMap();
 
@@ -67,8 +107,21 @@ public class SocketTransportService implements TransportService {
 			throw new IllegalArgumentException("Only localhost is supported."); //$NON-NLS-1$
 		}
 		ListenerKey key = new SocketListenerKey(host + Constants.COLON + port);
-		ServerSocket serverSocket = new ServerSocket(port);
-		listeners.put(key, serverSocket);
+		ServerSocketChannel channel = ServerSocketChannel.open();
+		Selector selector = null;
+		try {
+			channel.socket().bind(new InetSocketAddress(port));
+			channel.configureBlocking(false);
+			selector = Selector.open();
+			channel.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			if (selector != null) {
+				selector.close();
+			}
+			channel.close();
+			throw e;
+		}
+		listeners.put(key, new Listener(channel, selector));
 		return key;
 
 	};
@@ -77,9 +130,12 @@ public class SocketTransportService implements TransportService {
 	 * @see org.eclipse.wst.jsdt.debug.internal.core.jsdi.connect.TransportService#stopListening(org.eclipse.wst.jsdt.debug.internal.core.jsdi.connect.TransportService.ListenerKey)
 	 */
 	public void stopListening(ListenerKey key) throws IOException {
-		ServerSocket serverSocket = (ServerSocket) listeners.remove(key);
-		if (serverSocket != null) {
-			serverSocket.close();
+		Listener listener;
+		synchronized (this) {
+			listener = (Listener) listeners.remove(key);
+		}
+		if (listener != null) {
+			listener.close();
 		}
 	}
 
@@ -87,18 +143,14 @@ public class SocketTransportService implements TransportService {
 	 * @see org.eclipse.wst.jsdt.debug.internal.core.jsdi.connect.TransportService#accept(org.eclipse.wst.jsdt.debug.internal.core.jsdi.connect.TransportService.ListenerKey, long, long)
 	 */
 	public Connection accept(ListenerKey key, long attachTimeout, long handshakeTimeout) throws IOException {
-		ServerSocket serverSocket = (ServerSocket) listeners.get(key);
-		if (serverSocket == null) {
-			throw new IllegalStateException("Accept failed. Not listening for address: key.address()"); //$NON-NLS-1$
+		Listener listener;
+		synchronized (this) {
+			listener = (Listener) listeners.get(key);
 		}
-		int timeout = (int) attachTimeout;
-		if (timeout > 0) {
-			if (timeout > Integer.MAX_VALUE) {
-				timeout = Integer.MAX_VALUE; // approximately 25 days!
-			}
-			serverSocket.setSoTimeout(timeout);
+		if (listener == null) {
+			throw new IllegalStateException("Accept failed. Not listening for address: key.address()"); //$NON-NLS-1$
 		}
-		Connection connection = new SocketConnection(serverSocket.accept());
+		Connection connection = new SocketConnection(acceptChannel(listener, attachTimeout).socket());
 		Packet packet = connection.readPacket();
 		if (!(packet instanceof Request)) {
 			throw new IOException("failure establishing_connection"); //$NON-NLS-1$
@@ -131,7 +183,19 @@ public class SocketTransportService implements TransportService {
 		if (host == null) {
 			host = LOCALHOST;
 		}
-		Connection connection = new SocketConnection(new Socket(host, port));
+		SocketChannel channel = SocketChannel.open();
+		try {
+			InetSocketAddress socketAddress = new InetSocketAddress(host, port);
+			if (attachTimeout > 0) {
+				channel.socket().connect(socketAddress, (int) Math.min(attachTimeout, Integer.MAX_VALUE));
+			} else {
+				channel.socket().connect(socketAddress);
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		Connection connection = new SocketConnection(channel.socket());
 		Request request = new Request(JSONConstants.CONNECT);
 		connection.writePacket(request);
 
@@ -146,4 +210,44 @@ public class SocketTransportService implements TransportService {
 		}
 		return connection;
 	}
+
+	/**
+	 * Waits for a connection to the given listener
+	 * 
+	 * @param listener
+	 * @param timeout how long to wait, or zero or less to wait until a connection is made
+	 * @return the channel of the new connection, in blocking mode
+	 * @throws IOException if the wait timed out, listening was stopped, the thread was
+	 *             interrupted or the accept failed
+	 */
+	private SocketChannel acceptChannel(Listener listener, long timeout) throws IOException {
+		long deadline = System.currentTimeMillis() + timeout;
+		try {
+			while (true) {
+				if (Thread.currentThread().isInterrupted()) {
+					// select() returns at once on an interrupted thread, so waiting would only spin
+					throw new InterruptedIOException("Accept failed: interrupted"); //$NON-NLS-1$
+				}
+				if (!listener.selector.isOpen()) {
+					throw new IOException("Accept failed: stopped listening"); //$NON-NLS-1$
+				}
+				SocketChannel channel = listener.channel.accept();
+				if (channel != null) {
+					channel.configureBlocking(true);
+					return channel;
+				}
+				long wait = 0;
+				if (timeout > 0) {
+					wait = deadline - System.currentTimeMillis();
+					if (wait <= 0) {
+						throw new SocketTimeoutException("Accept timed out"); //$NON-NLS-1$
+					}
+				}
+				listener.selector.select(wait);
+				listener.selector.selectedKeys().clear();
+			}
+		} catch (ClosedSelectorException e) {
+			throw new IOException("Accept failed: stopped listening"); //$NON-NLS-1$
+		}
+	}
 }